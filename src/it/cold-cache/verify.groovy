@@ -0,0 +1,25 @@
+System.properties.remove("reproto.it.server." + basedir)?.stop(0)
+
+def log = new File(basedir, "build.log").text
+assert log.contains("Downloading archive to cache")
+
+def cache = new File(basedir, "target/cache")
+assert new File(cache, "version").isFile()
+assert cache.list().any { it ==~ /reproto-0\.3\.99-.+\.tar\.gz/ }
+
+assert new File(basedir, "target/reproto-plugins/reproto-0.3.99").canExecute()
+assert new File(basedir, "target/generated-sources/reproto/java/stub/api/v1/Stub.java").isFile()
+assert new File(basedir, "reproto-stub.log").readLines().size() == 1
+
+def events = new File(basedir, "target/events.jsonl").readLines().collect {
+  new groovy.json.JsonSlurper().parseText(it)
+}
+
+assert events*.type == ["resolve-start", "cache-miss", "download", "resolve-end", "process-spawn",
+                        "process-exit", "files-generated"]
+assert events.every { it.project == "se.tedro.it:cold-cache" }
+assert events.find { it.type == "download" }.bytes > 0
+assert events.find { it.type == "process-exit" }.status == 0
+assert events.find { it.type == "files-generated" }.files == 1
+
+return true
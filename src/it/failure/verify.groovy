@@ -0,0 +1,5 @@
+def log = new File(basedir, "build.log").text
+assert log.contains("reproto: injected failure")
+assert log.contains("exited with non-zero status (3)")
+
+return true
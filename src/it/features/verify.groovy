@@ -0,0 +1,12 @@
+def invocations = new File(basedir, "reproto-stub.log").readLines()
+assert invocations.size() == 2
+
+assert invocations.any { it.contains("--module jackson") && it.contains("--package api.v1") }
+assert invocations.any { it.contains("--module builder") && it.contains("--package api.v2") }
+assert invocations.every { !(it.contains("api.v1") && it.contains("api.v2")) }
+
+def generated = new File(basedir, "target/generated-sources/reproto/java/stub")
+assert new File(generated, "api/v1/Stub.java").isFile()
+assert new File(generated, "api/v2/Stub.java").isFile()
+
+return true
@@ -0,0 +1,5 @@
+def log = new File(basedir, "build.log").text
+assert log.contains("No cached release available in offline mode")
+assert !new File(basedir, "reproto-stub.log").exists()
+
+return true
@@ -0,0 +1 @@
+evaluate(new File(itDirectory, "release-server.groovy"))
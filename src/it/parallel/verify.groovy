@@ -0,0 +1,11 @@
+System.properties.remove("reproto.it.server." + basedir)?.stop(0)
+
+// identical executions are deduplicated
+assert new File(basedir, "reproto-stub.log").readLines().size() == 1
+
+(1..8).each {
+  def module = new File(basedir, "module" + it)
+  assert new File(module, "target/generated-sources/reproto/java/stub/api/v1/Stub.java").isFile()
+}
+
+return true
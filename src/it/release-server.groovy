@@ -0,0 +1,57 @@
+/*
+ * Local release server used by the integration tests, serving a `releases` listing and an archive
+ * containing the stub reproto for every platform.
+ *
+ * Started from the pre-build hook of a project. The address of the server is handed to the build
+ * through .mvn/maven.config, and every request is recorded in server/requests.log.
+ */
+import com.sun.net.httpserver.HttpServer
+
+// kept outside of target, so that it survives builds which clean the project
+def state = new File(basedir, "server")
+state.mkdirs()
+
+def archive = new File(state, "reproto-stub.tar.gz")
+def tar = ["tar", "-C", new File(itDirectory, "stub").path, "-czf", archive.path, "reproto"]
+assert tar.execute().waitFor() == 0
+
+def requests = new File(state, "requests.log")
+def etag = "\"stub-releases\""
+
+def server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0)
+
+server.createContext("/", { exchange ->
+  def path = exchange.requestURI.path
+
+  synchronized (requests) {
+    requests << path << "\n"
+  }
+
+  if (path == "/releases") {
+    exchange.responseHeaders.add("ETag", etag)
+
+    if (exchange.requestHeaders.getFirst("If-None-Match") == etag) {
+      exchange.sendResponseHeaders(304, -1)
+    } else {
+      def body = "0.2.0\n0.3.0\n0.3.99\n0.4.0\n".bytes
+      exchange.sendResponseHeaders(200, body.length)
+      exchange.responseBody.write(body)
+    }
+  } else if (path.startsWith("/reproto-") && path.endsWith(".tar.gz")) {
+    exchange.sendResponseHeaders(200, archive.length())
+    archive.withInputStream { exchange.responseBody << it }
+  } else {
+    exchange.sendResponseHeaders(404, -1)
+  }
+
+  exchange.close()
+})
+
+server.start()
+System.properties.put("reproto.it.server." + basedir, server)
+
+def config = new File(basedir, ".mvn/maven.config")
+config.parentFile.mkdirs()
+config.text = "-Dreproto.releasesUrl=http://127.0.0.1:${server.address.port}\n"
+
+return true
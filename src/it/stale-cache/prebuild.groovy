@@ -0,0 +1,14 @@
+evaluate(new File(itDirectory, "release-server.groovy"))
+
+// a cached release which is older than the cache time
+def version = new File(basedir, "target/cache/version")
+version.parentFile.mkdirs()
+version.text = '{"etag":"\\"stale\\"","version":"0.3.50"}'
+version.lastModified = System.currentTimeMillis() - 2 * 60 * 60 * 1000
+
+// left behind by a refresh which was interrupted when its build exited
+def temporary = new File(version.parentFile, ".version123.tmp")
+temporary.text = '{"etag":'
+temporary.lastModified = System.currentTimeMillis() - 2 * 60 * 60 * 1000
+
+return true
@@ -0,0 +1,12 @@
+System.properties.remove("reproto.it.server." + basedir)?.stop(0)
+
+def log = new File(basedir, "build.log").text
+assert log.contains("Using cached release (GcsClient.Release(etag=\"stale\", version=0.3.50)), refreshing in the background")
+
+// the stale release is used, without waiting for the refresh
+assert new File(basedir, "target/reproto-plugins/reproto-0.3.50").canExecute()
+
+// stale temporary files are cleaned up
+assert !new File(basedir, "target/cache/.version123.tmp").exists()
+
+return true
@@ -0,0 +1,4 @@
+def log = new File(basedir, "build.log").text
+assert log.contains("timed out after 1s")
+
+return true
@@ -0,0 +1,5 @@
+def log = new File(basedir, "build.log").text
+assert log.contains("version 0.4.1 does not match the required version 0.3")
+assert !new File(basedir, "reproto-stub.log").exists()
+
+return true
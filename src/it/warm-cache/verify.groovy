@@ -0,0 +1,10 @@
+System.properties.remove("reproto.it.server." + basedir)?.stop(0)
+
+def requests = new File(basedir, "server/requests.log").readLines()
+assert requests.count { it.endsWith(".tar.gz") } == 1
+
+assert new File(basedir, "target/reproto-plugins/reproto-0.3.99").canExecute()
+assert new File(basedir, "target/generated-sources/reproto/java/stub/api/v1/Stub.java").isFile()
+assert new File(basedir, "reproto-stub.log").readLines().size() == 2
+
+return true
@@ -0,0 +1,40 @@
+package se.tedro.maven.plugin.reproto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes files so that concurrent readers, like other builds or executions, either see the
+ * previous or the complete new content, never a partially written file.
+ */
+public class AtomicFiles {
+  /**
+   * Write a file next to the given path and move it in place.
+   *
+   * <p>Since the file is replaced rather than written to, this also gives the path an inode of its
+   * own if it was hard linked elsewhere. The parent directory is expected to exist.
+   */
+  public static void write(final Path path, final Content content) throws IOException {
+    final Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(),
+        "." + path.getFileName(), ".tmp");
+
+    try {
+      try (final OutputStream out = Files.newOutputStream(temporary)) {
+        content.writeTo(out);
+      }
+
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  @FunctionalInterface
+  public interface Content {
+    void writeTo(OutputStream out) throws IOException;
+  }
+}
@@ -0,0 +1,217 @@
+package se.tedro.maven.plugin.reproto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import se.tedro.maven.plugin.reproto.api.OutputStats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Structured events describing what the plugin does, written as JSON lines.
+ *
+ * <p>Events are queued and written by a background thread, so emitting them is cheap. All
+ * executions in the JVM which write to the same file share a single writer, and whatever is still
+ * queued is written by {@link #flush()} and when the build exits.
+ */
+@RequiredArgsConstructor
+public class BuildEvents implements Reproto.Listener {
+  public static final BuildEvents NONE = new BuildEvents("", Optional.empty());
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final ConcurrentMap<Path, Appender> APPENDERS = new ConcurrentHashMap<>();
+
+  private final String project;
+  private final Optional<Appender> appender;
+
+  /**
+   * Open an event stream appending to the given file.
+   *
+   * @param project project which emitted events are attributed to
+   */
+  public static BuildEvents open(final Path path, final String project) throws IOException {
+    try {
+      return new BuildEvents(project,
+          Optional.of(APPENDERS.computeIfAbsent(path.toAbsolutePath(), Appender::start)));
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  public boolean isEnabled() {
+    return appender.isPresent();
+  }
+
+  /**
+   * Write all queued events.
+   */
+  public void flush() {
+    appender.ifPresent(Appender::drain);
+  }
+
+  public void resolveStart() {
+    emit(Type.RESOLVE_START);
+  }
+
+  public void resolveEnd(final Path executable, final long durationMs) {
+    emit(Type.RESOLVE_END, "executable", executable.toString(), "durationMs", durationMs);
+  }
+
+  public void cacheHit(final String entry) {
+    emit(Type.CACHE_HIT, "entry", entry);
+  }
+
+  public void cacheMiss(final String entry) {
+    emit(Type.CACHE_MISS, "entry", entry);
+  }
+
+  public void download(final String url, final long bytes, final long durationMs) {
+    final long bytesPerSecond = bytes * 1000L / Math.max(1L, durationMs);
+    emit(Type.DOWNLOAD, "url", url, "bytes", bytes, "durationMs", durationMs, "bytesPerSecond",
+        bytesPerSecond);
+  }
+
+  @Override
+  public void processSpawn(final List<String> command) {
+    emit(Type.PROCESS_SPAWN, "command", command);
+  }
+
+  @Override
+  public void processExit(
+      final int status, final long durationMs, final ProcessStats.Usage usage
+  ) {
+    emit(Type.PROCESS_EXIT, "status", status, "durationMs", durationMs, "cpuTimeMs",
+        usage.getCpuTimeMs().orElse(null), "peakRssKb", usage.getPeakRssKb().orElse(null));
+  }
+
+  public void filesGenerated(final Path directory, final long files, final long bytes) {
+    emit(Type.FILES_GENERATED, "directory", directory.toString(), "files", files, "bytes", bytes);
+  }
+
+  public void packageStats(final String packageName, final OutputStats.PackageStats stats) {
+    emit(Type.PACKAGE_STATS, "package", packageName, "files", stats.getFiles(), "bytes",
+        stats.getBytes(), "types", stats.getTypes(), "fields", stats.getFields());
+  }
+
+  private void emit(final Type type, final Object... fields) {
+    if (!appender.isPresent()) {
+      return;
+    }
+
+    final Map<String, Object> event = new LinkedHashMap<>();
+    event.put("time", System.currentTimeMillis());
+    event.put("type", type.toString());
+    event.put("project", project);
+
+    for (int i = 0; i < fields.length; i += 2) {
+      event.put((String) fields[i], fields[i + 1]);
+    }
+
+    appender.get().add(event);
+  }
+
+  public enum Type {
+    RESOLVE_START,
+    RESOLVE_END,
+    CACHE_HIT,
+    CACHE_MISS,
+    DOWNLOAD,
+    PROCESS_SPAWN,
+    PROCESS_EXIT,
+    FILES_GENERATED,
+    PACKAGE_STATS;
+
+    @Override
+    public String toString() {
+      return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+  }
+
+  private static class Appender implements Runnable {
+    private final Queue<Map<String, Object>> queue = new ConcurrentLinkedQueue<>();
+    /**
+     * Signals the writer thread that events are queued.
+     */
+    private final Semaphore available = new Semaphore(0);
+    private final Writer writer;
+
+    private Appender(final Writer writer) {
+      this.writer = writer;
+    }
+
+    static Appender start(final Path path) {
+      final Appender appender;
+
+      try {
+        Files.createDirectories(path.getParent());
+        appender = new Appender(Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      final Thread thread = new Thread(appender, "reproto-events");
+      thread.setDaemon(true);
+      thread.start();
+
+      // the writer thread is a daemon, write whatever is left when the build exits
+      Runtime.getRuntime().addShutdownHook(new Thread(appender::drain, "reproto-events-drain"));
+      return appender;
+    }
+
+    void add(final Map<String, Object> event) {
+      queue.add(event);
+      available.release();
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        try {
+          available.acquire();
+        } catch (final InterruptedException e) {
+          return;
+        }
+
+        available.drainPermits();
+        drain();
+      }
+    }
+
+    /**
+     * Write all queued events.
+     *
+     * <p>Events are only taken off the queue while holding the lock, so that a concurrent drain
+     * either writes them itself or waits until they have been written.
+     */
+    synchronized void drain() {
+      try {
+        Map<String, Object> event;
+
+        while ((event = queue.poll()) != null) {
+          writer.write(mapper.writeValueAsString(event));
+          writer.write('\n');
+        }
+
+        writer.flush();
+      } catch (final IOException e) {
+        // events are best effort and never fail the build
+      }
+    }
+  }
+}
@@ -0,0 +1,292 @@
+package se.tedro.maven.plugin.reproto;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.codehaus.plexus.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps track of the size and last use of every entry in the cache directory, and evicts the
+ * least recently used entries when the cache is over budget.
+ *
+ * <p>Entries are release archives and source builds. The index is guarded by a file lock so that
+ * it can be shared by concurrent builds, and entries which have been used recently are never
+ * evicted since another build might still be extracting or running them.
+ */
+@RequiredArgsConstructor
+public class CacheIndex {
+  public static final String INDEX = "index.json";
+  public static final String LOCK = "index.lock";
+  public static final long IN_USE_MS = TimeUnit.MINUTES.toMillis(10L);
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final TypeReference<List<Entry>> ENTRIES = new TypeReference<List<Entry>>() {
+  };
+
+  /**
+   * File locks are held by the JVM, so threads of the same build are serialized separately.
+   */
+  private static final Object JVM_LOCK = new Object();
+
+  private final Path directory;
+
+  /**
+   * The default cache directory, {@code ~/.cache/reproto-maven-plugin}.
+   */
+  public static Path defaultDirectory() {
+    final String userHome = System.getProperty("user.home");
+
+    if (userHome == null || StringUtils.isBlank(userHome)) {
+      throw new IllegalStateException("user.home: property not set");
+    }
+
+    final Path home = Paths.get(userHome);
+    return home.resolve(".cache").resolve("reproto-maven-plugin");
+  }
+
+  /**
+   * Record that the given entry was used.
+   *
+   * <p>Since this happens under the same lock as {@link #prune(long, long, long)}, an entry which
+   * exists according to this method is protected from eviction while it is in use.
+   *
+   * @return {@code true} if the entry exists
+   */
+  public boolean touch(final String name, final long now) throws IOException {
+    return locked(entries -> {
+      final Path path = directory.resolve(name);
+
+      if (!Files.exists(path)) {
+        return false;
+      }
+
+      entries.put(name, new Entry(name, size(path), now));
+      return true;
+    });
+  }
+
+  /**
+   * List all entries, least recently used first.
+   */
+  public List<Entry> list() throws IOException {
+    return locked(entries -> sorted(entries));
+  }
+
+  /**
+   * Evict least recently used entries until the cache is within the given budget.
+   *
+   * @param maxSize maximum total size in bytes, or {@code 0} for no limit
+   * @param maxAgeMs maximum time since an entry was last used, or {@code 0} for no limit
+   * @return the evicted entries
+   */
+  public List<Entry> prune(final long maxSize, final long maxAgeMs, final long now)
+      throws IOException {
+    return locked(entries -> {
+      long total = entries.values().stream().mapToLong(Entry::getSize).sum();
+      final List<Entry> evicted = new ArrayList<>();
+
+      for (final Entry entry : sorted(entries)) {
+        final long age = now - entry.getLastUsed();
+
+        if (age < IN_USE_MS) {
+          continue;
+        }
+
+        final boolean overSize = maxSize > 0 && total > maxSize;
+        final boolean overAge = maxAgeMs > 0 && age > maxAgeMs;
+
+        if (!overSize && !overAge) {
+          continue;
+        }
+
+        delete(directory.resolve(entry.getName()));
+        entries.remove(entry.getName());
+        total -= entry.getSize();
+        evicted.add(entry);
+      }
+
+      return evicted;
+    });
+  }
+
+  /**
+   * Verify that every entry is intact, removing the ones which are not.
+   *
+   * @return the removed entries
+   */
+  public List<Entry> verify() throws IOException {
+    return locked(entries -> {
+      final List<Entry> removed = new ArrayList<>();
+
+      for (final Entry entry : sorted(entries)) {
+        final Path path = directory.resolve(entry.getName());
+
+        if (isIntact(path)) {
+          continue;
+        }
+
+        delete(path);
+        entries.remove(entry.getName());
+        removed.add(entry);
+      }
+
+      return removed;
+    });
+  }
+
+  private boolean isIntact(final Path path) {
+    if (Files.isDirectory(path)) {
+      return Files.isDirectory(path.resolve("bin"));
+    }
+
+    final CompressorStreamFactory factory = new CompressorStreamFactory();
+
+    try (final InputStream in = Files.newInputStream(path);
+         final TarArchiveInputStream tar = new TarArchiveInputStream(
+             factory.createCompressorInputStream(CompressorStreamFactory.GZIP, in))) {
+      final byte[] buffer = new byte[4096];
+
+      while (tar.getNextTarEntry() != null) {
+        while (tar.read(buffer) >= 0) {
+          // read through the entry to verify its content
+        }
+      }
+
+      return true;
+    } catch (final Exception e) {
+      return false;
+    }
+  }
+
+  /**
+   * Run the given action with exclusive access to the index, which is synchronized with the
+   * content of the cache directory before the action and written after it.
+   */
+  private <T> T locked(final IndexAction<T> action) throws IOException {
+    Files.createDirectories(directory);
+
+    synchronized (JVM_LOCK) {
+      try (final FileChannel channel = FileChannel.open(directory.resolve(LOCK),
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+           final FileLock ignored = channel.lock()) {
+        final Map<String, Entry> entries = read();
+        final T result = action.apply(entries);
+        write(entries);
+        return result;
+      }
+    }
+  }
+
+  private Map<String, Entry> read() throws IOException {
+    final Map<String, Entry> entries = new TreeMap<>();
+    final Path index = directory.resolve(INDEX);
+
+    if (Files.isRegularFile(index)) {
+      try (final InputStream in = Files.newInputStream(index)) {
+        for (final Entry entry : mapper.<List<Entry>>readValue(in, ENTRIES)) {
+          entries.put(entry.getName(), entry);
+        }
+      } catch (final IOException e) {
+        // a broken index is rebuilt from the directory
+      }
+    }
+
+    final List<Path> paths;
+
+    try (final Stream<Path> stream = Files.list(directory)) {
+      paths = stream.filter(CacheIndex::isEntry).collect(Collectors.toList());
+    }
+
+    final Map<String, Entry> synced = new TreeMap<>();
+
+    for (final Path path : paths) {
+      final String name = path.getFileName().toString();
+      final Entry existing = entries.get(name);
+
+      if (existing != null) {
+        synced.put(name, existing);
+      } else {
+        final long modified = Files.getLastModifiedTime(path).toMillis();
+        synced.put(name, new Entry(name, size(path), modified));
+      }
+    }
+
+    return synced;
+  }
+
+  private void write(final Map<String, Entry> entries) throws IOException {
+    AtomicFiles.write(directory.resolve(INDEX),
+        out -> mapper.writeValue(out, new ArrayList<>(entries.values())));
+  }
+
+  private static boolean isEntry(final Path path) {
+    final String name = path.getFileName().toString();
+    return (name.startsWith("reproto-") && name.endsWith(".tar.gz")) || name.startsWith("source-");
+  }
+
+  private static List<Entry> sorted(final Map<String, Entry> entries) {
+    final List<Entry> result = new ArrayList<>(entries.values());
+    result.sort(Comparator.comparingLong(Entry::getLastUsed));
+    return result;
+  }
+
+  private static long size(final Path path) throws IOException {
+    try (final Stream<Path> stream = Files.walk(path)) {
+      long size = 0L;
+
+      for (final Path p : (Iterable<Path>) stream.filter(Files::isRegularFile)::iterator) {
+        size += Files.size(p);
+      }
+
+      return size;
+    }
+  }
+
+  private static void delete(final Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return;
+    }
+
+    final List<Path> paths;
+
+    try (final Stream<Path> stream = Files.walk(path)) {
+      paths = stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+
+    for (final Path p : paths) {
+      Files.deleteIfExists(p);
+    }
+  }
+
+  @Data
+  public static class Entry {
+    private final String name;
+    private final long size;
+    private final long lastUsed;
+  }
+
+  @FunctionalInterface
+  private interface IndexAction<T> {
+    T apply(Map<String, Entry> entries) throws IOException;
+  }
+}
@@ -0,0 +1,107 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manage the cache of downloaded releases.
+ *
+ * <p>Run with {@code -D reproto.cacheAction=<action>}, where action is one of:
+ * <ul>
+ * <li>{@code list} - list all entries, least recently used first</li>
+ * <li>{@code verify} - verify all entries, removing the ones which are corrupt</li>
+ * <li>{@code prune} - evict entries until the cache is within budget, without a budget every
+ * entry which is not in use is evicted</li>
+ * </ul>
+ */
+@Mojo(name = "cache", requiresProject = false, threadSafe = true)
+public class CacheReprotoMojo extends AbstractMojo {
+  /**
+   * Directory where downloaded releases are cached, defaults to
+   * {@code ~/.cache/reproto-maven-plugin}.
+   */
+  @Parameter(property = "reproto.cacheDirectory")
+  private File cacheDirectory;
+
+  @Parameter(property = "reproto.cacheAction", defaultValue = "list")
+  private String cacheAction;
+
+  /**
+   * Maximum size of the cache in megabytes, {@code 0} means no limit.
+   */
+  @Parameter(property = "reproto.cacheMaxSize", defaultValue = "0")
+  private long cacheMaxSize;
+
+  /**
+   * Maximum number of days since an entry was last used, {@code 0} means no limit.
+   */
+  @Parameter(property = "reproto.cacheMaxAge", defaultValue = "0")
+  private long cacheMaxAge;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    try {
+      doExecute();
+    } catch (final Exception e) {
+      throw new MojoExecutionException(e.getMessage(), e);
+    }
+  }
+
+  private void doExecute() throws Exception {
+    final Path directory =
+        cacheDirectory != null ? cacheDirectory.toPath() : CacheIndex.defaultDirectory();
+    final CacheIndex index = new CacheIndex(directory);
+    final long now = System.currentTimeMillis();
+
+    switch (cacheAction) {
+      case "list":
+        final List<CacheIndex.Entry> entries = index.list();
+        long total = 0L;
+
+        for (final CacheIndex.Entry entry : entries) {
+          getLog().info(describe(entry, now));
+          total += entry.getSize();
+        }
+
+        getLog().info(directory + ": " + entries.size() + " entries, " + megabytes(total));
+        break;
+      case "verify":
+        for (final CacheIndex.Entry entry : index.verify()) {
+          getLog().warn("Removed corrupt entry: " + describe(entry, now));
+        }
+
+        break;
+      case "prune":
+        final boolean budget = cacheMaxSize > 0 || cacheMaxAge > 0;
+        final List<CacheIndex.Entry> evicted =
+            budget ? index.prune(cacheMaxSize * 1024L * 1024L, TimeUnit.DAYS.toMillis(cacheMaxAge),
+                now) : index.prune(0L, 1L, now);
+
+        for (final CacheIndex.Entry entry : evicted) {
+          getLog().info("Evicted: " + describe(entry, now));
+        }
+
+        break;
+      default:
+        throw new IllegalArgumentException(
+            "Unsupported action `" + cacheAction + "`, expected one of: list, verify, prune");
+    }
+  }
+
+  private static String describe(final CacheIndex.Entry entry, final long now) {
+    final long hours = TimeUnit.MILLISECONDS.toHours(now - entry.getLastUsed());
+    return entry.getName() + " (" + megabytes(entry.getSize()) + ", last used " + hours
+        + "h ago)";
+  }
+
+  private static String megabytes(final long bytes) {
+    return String.format("%.1fM", bytes / (1024.0 * 1024.0));
+  }
+}
@@ -11,9 +11,13 @@ import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
 import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.ResolutionErrorHandler;
+import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -21,25 +25,55 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.apache.maven.repository.RepositorySystem;
+import org.apache.maven.toolchain.Toolchain;
+import org.apache.maven.toolchain.ToolchainManager;
 import org.codehaus.plexus.util.StringUtils;
 import org.sonatype.plexus.build.incremental.BuildContext;
+import se.tedro.maven.plugin.reproto.api.ApiDiff;
+import se.tedro.maven.plugin.reproto.api.ApiReport;
+import se.tedro.maven.plugin.reproto.api.ApiScanner;
+import se.tedro.maven.plugin.reproto.api.ApiSnapshot;
+import se.tedro.maven.plugin.reproto.api.OutputStats;
 import se.tedro.maven.plugin.reproto.gcs.GcsClient;
+import se.tedro.maven.plugin.reproto.transform.LicenseHeader;
+import se.tedro.maven.plugin.reproto.transform.PostProcessor;
+import se.tedro.maven.plugin.reproto.transform.RemoveUnusedImports;
+import se.tedro.maven.plugin.reproto.transform.StripTrailingWhitespace;
+import se.tedro.maven.plugin.reproto.transform.Transform;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.PosixFilePermission;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Mojo(name = "compile", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
 public class CompileReprotoMojo extends AbstractMojo {
@@ -47,10 +81,41 @@ public class CompileReprotoMojo extends AbstractMojo {
   public static final long CACHE_TIME_MS = TimeUnit.MINUTES.toMillis(60L);
 
   public static final String EXECUTABLE = "reproto";
+  public static final String CARGO = "cargo";
   public static final String DEFAULT_REPOSITORY = "reproto/reproto";
+  public static final String BUDGET_WARN = "warn";
+  public static final String BUDGET_FAIL = "fail";
 
   private static final ObjectMapper mapper = new ObjectMapper();
 
+  private static final Object SOURCE_BUILD_LOCK = new Object();
+
+  /**
+   * Version files currently being refreshed in the background.
+   */
+  private static final Set<Path> REFRESHING = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Executor for background refreshes, created by the first refresh, see
+   * {@link #refreshExecutor()}.
+   */
+  private static ExecutorService refreshExecutor;
+
+  /**
+   * Background refreshes outlive the mojo which started them, so they can't use its log.
+   */
+  private static final Log REFRESH_LOG = new SystemStreamLog();
+
+  /**
+   * How long to wait for a background refresh to complete when the build exits.
+   */
+  private static final long REFRESH_SHUTDOWN_MS = TimeUnit.SECONDS.toMillis(5L);
+
+  /**
+   * Temporary version files older than this were left behind by an interrupted write.
+   */
+  private static final long STALE_TEMPORARY_MS = TimeUnit.MINUTES.toMillis(10L);
+
   @Parameter(defaultValue = "${project}", readonly = true)
   private MavenProject project;
 
@@ -69,6 +134,9 @@ public class CompileReprotoMojo extends AbstractMojo {
   @Component
   private BuildContext buildContext;
 
+  @Component
+  private ToolchainManager toolchainManager;
+
   @Parameter(required = false, property = "reproto.executable")
   private String executable;
 
@@ -84,6 +152,40 @@ public class CompileReprotoMojo extends AbstractMojo {
   @Parameter(required = false, property = "reproto.debug")
   private boolean debug = false;
 
+  /**
+   * Location which releases are downloaded from.
+   */
+  @Parameter(required = false, property = "reproto.releasesUrl")
+  private String releasesUrl = GcsClient.API_BASE;
+
+  /**
+   * When {@code true}, build reproto from source using cargo if no release is available for the
+   * current platform.
+   */
+  @Parameter(property = "reproto.buildFromSource", defaultValue = "false")
+  private boolean buildFromSource;
+
+  /**
+   * Directory where downloaded releases are cached, defaults to
+   * {@code ~/.cache/reproto-maven-plugin}.
+   */
+  @Parameter(required = false, property = "reproto.cacheDirectory")
+  private File cacheDirectory;
+
+  /**
+   * Maximum size of the cache directory in megabytes, {@code 0} means no limit. Least recently
+   * used entries are evicted when it is exceeded.
+   */
+  @Parameter(property = "reproto.cacheMaxSize", defaultValue = "0")
+  private long cacheMaxSize;
+
+  /**
+   * Maximum number of days since an entry in the cache directory was last used, {@code 0} means
+   * no limit.
+   */
+  @Parameter(property = "reproto.cacheMaxAge", defaultValue = "0")
+  private long cacheMaxAge;
+
   @Parameter(required = true, readonly = true, property = "localRepository")
   private ArtifactRepository localRepository;
 
@@ -122,6 +224,22 @@ public class CompileReprotoMojo extends AbstractMojo {
   @Parameter()
   private List<String> modules = Collections.emptyList();
 
+  /**
+   * Modules to generate specific target packages with, instead of {@code modules}. Targets are
+   * grouped by their modules, and every group is generated by a separate invocation of reproto.
+   * Modules enabled in the manifest apply to all targets, and packages in the manifest have to
+   * be configured as {@code targets} instead.
+   */
+  @Parameter()
+  private List<TargetFeature> targetFeatures = Collections.emptyList();
+
+  /**
+   * When {@code true}, fail on modules which are not known to be supported by the java backend of
+   * reproto. Disable to use modules of a reproto version which is newer than the plugin.
+   */
+  @Parameter(property = "reproto.checkModules", defaultValue = "true")
+  private boolean checkModules;
+
   @Parameter(
       required = true,
       defaultValue = "${project.build.directory}/generated-sources/reproto/java",
@@ -136,6 +254,177 @@ public class CompileReprotoMojo extends AbstractMojo {
   )
   private File manifest;
 
+  /**
+   * When {@code true}, executions within the same build session which would generate identical
+   * output only run reproto once. The first execution generates into
+   * {@code target/reproto-dedupe}, and the generated files are then materialized into the output
+   * directory of every execution.
+   */
+  @Parameter(property = "reproto.dedupe", defaultValue = "true")
+  private boolean dedupe;
+
+  /**
+   * How deduplicated output is materialized, either {@code copy} or {@code link}. Hard links fall
+   * back to copies where they are not supported.
+   */
+  @Parameter(property = "reproto.dedupeMode", defaultValue = "copy")
+  private String dedupeMode;
+
+  /**
+   * When {@code true}, generate into a staging directory and package the result into a single
+   * source bundle which is attached to the project with the {@code reproto-sources} classifier.
+   * Only files which have changed since the last build are unpacked into {@code output}.
+   *
+   * <p>Executions other than the default one append their id to the classifier, and to the
+   * default locations of {@code bundleFile} and {@code stagingDirectory}.
+   */
+  @Parameter(property = "reproto.bundle", defaultValue = "false")
+  private boolean bundle;
+
+  /**
+   * Location of the source bundle, see {@code bundle}. Defaults to
+   * {@code ${project.build.directory}/reproto-sources.jar}.
+   */
+  @Parameter
+  private File bundleFile;
+
+  /**
+   * Directory which sources are generated into before they are bundled, see {@code bundle}.
+   * Defaults to {@code ${project.build.directory}/reproto-staging}.
+   */
+  @Parameter
+  private File stagingDirectory;
+
+  @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+  private MojoExecution mojoExecution;
+
+  /**
+   * When set, structured events describing what the plugin does are appended to this file as
+   * JSON lines.
+   */
+  @Parameter(property = "reproto.eventLog")
+  private File eventLog;
+
+  private BuildEvents events = BuildEvents.NONE;
+
+  /**
+   * Transforms applied to every generated java file, in order. Each is either a built-in
+   * transform ({@code remove-unused-imports} or {@code strip-trailing-whitespace}), or the name of
+   * a class implementing {@link Transform} which is available through the dependencies of the
+   * plugin.
+   */
+  @Parameter
+  private List<String> transforms = Collections.emptyList();
+
+  /**
+   * File containing a license header which is added to every generated java file, after all
+   * other transforms.
+   */
+  @Parameter(property = "reproto.licenseHeader")
+  private File licenseHeader;
+
+  /**
+   * Directory where transformed files are kept, so that unchanged files don't have to be
+   * transformed again. Defaults to {@code ${project.build.directory}/reproto-transforms}, suffixed
+   * by the execution id for other than the default execution, since every execution only keeps
+   * the files it used.
+   */
+  @Parameter
+  private File transformsDirectory;
+
+  /**
+   * When {@code true}, compare the API of the generated types against the previous generation and
+   * write a report with the differences and the ABI hash of every generated package. The ABI
+   * hash of the module is also set as the project property {@code reproto.abiHash}.
+   */
+  @Parameter(property = "reproto.impactReport", defaultValue = "false")
+  private boolean impactReport;
+
+  /**
+   * Location of the impact report, see {@code impactReport}.
+   */
+  @Parameter(defaultValue = "${project.build.directory}/reproto-impact.json")
+  private File impactReportFile;
+
+  /**
+   * Where the API of the last generation is stored, see {@code impactReport}. Point this outside
+   * of the build directory to compare against generations from before the last clean.
+   */
+  @Parameter(property = "reproto.apiSnapshot",
+      defaultValue = "${project.build.directory}/reproto-api.json")
+  private File apiSnapshot;
+
+  /**
+   * When {@code true}, count the files, bytes, types and fields generated for every package, and
+   * write them to {@code statsFile}. Statistics are always collected when a budget is set.
+   */
+  @Parameter(property = "reproto.stats", defaultValue = "false")
+  private boolean stats;
+
+  /**
+   * Location of the generated statistics, see {@code stats}.
+   */
+  @Parameter(defaultValue = "${project.build.directory}/reproto-stats.json")
+  private File statsFile;
+
+  /**
+   * Maximum number of files generated for a single package, {@code 0} means no limit.
+   */
+  @Parameter(property = "reproto.maxFilesPerPackage", defaultValue = "0")
+  private long maxFilesPerPackage;
+
+  /**
+   * Maximum number of bytes generated for a single package, {@code 0} means no limit.
+   */
+  @Parameter(property = "reproto.maxBytesPerPackage", defaultValue = "0")
+  private long maxBytesPerPackage;
+
+  /**
+   * Maximum number of types generated for a single package, {@code 0} means no limit.
+   */
+  @Parameter(property = "reproto.maxTypesPerPackage", defaultValue = "0")
+  private long maxTypesPerPackage;
+
+  /**
+   * Maximum number of fields generated for a single package, {@code 0} means no limit.
+   */
+  @Parameter(property = "reproto.maxFieldsPerPackage", defaultValue = "0")
+  private long maxFieldsPerPackage;
+
+  /**
+   * What to do when a package exceeds its budget, either {@code warn} or {@code fail}.
+   */
+  @Parameter(property = "reproto.budgetAction", defaultValue = BUDGET_WARN)
+  private String budgetAction;
+
+  /**
+   * When {@code true}, check that an executable which was not downloaded by the plugin reports a
+   * version matching {@code version} before using it. Each executable is only checked once per
+   * build session.
+   */
+  @Parameter(property = "reproto.checkVersion", defaultValue = "true")
+  private boolean checkVersion;
+
+  /**
+   * Maximum number of seconds a single reproto invocation is allowed to run for, {@code 0} means
+   * no limit.
+   */
+  @Parameter(property = "reproto.timeout", defaultValue = "0")
+  private int timeout;
+
+  /**
+   * Nice level to run reproto with, ignored on platforms without {@code nice}.
+   */
+  @Parameter(property = "reproto.nice")
+  private Integer nice;
+
+  /**
+   * Maximum number of reproto processes running concurrently in the build session, {@code 0}
+   * means no limit. The first execution in the session decides the limit.
+   */
+  @Parameter(property = "reproto.maxProcesses", defaultValue = "0")
+  private int maxProcesses;
+
   /**
    * Check if execution should be skipped.
    */
@@ -159,6 +448,8 @@ public class CompileReprotoMojo extends AbstractMojo {
       doExecute();
     } catch (final Exception e) {
       throw new MojoExecutionException(e.getMessage(), e);
+    } finally {
+      events.flush();
     }
   }
 
@@ -167,26 +458,141 @@ public class CompileReprotoMojo extends AbstractMojo {
       return;
     }
 
+    final Manifest parsedManifest = loadManifest(this.manifest.toPath());
+    final Set<String> allTargets = new LinkedHashSet<>(targets);
+    final List<String> allModules = new ArrayList<>(modules);
+
+    for (final TargetFeature feature : targetFeatures) {
+      Optional.ofNullable(feature.getTarget()).ifPresent(allTargets::add);
+      allModules.addAll(feature.getModules());
+    }
+
+    final List<String> errors = parsedManifest.validate(allTargets, allModules, checkModules);
+
+    if (!errors.isEmpty()) {
+      throw new IllegalArgumentException(
+          "Invalid configuration (" + this.manifest + "):\n  " + String.join("\n  ", errors));
+    }
+
+    if (!BUDGET_WARN.equals(budgetAction) && !BUDGET_FAIL.equals(budgetAction)) {
+      throw new IllegalArgumentException("budgetAction: unsupported value `" + budgetAction
+          + "`, expected one of: " + BUDGET_WARN + ", " + BUDGET_FAIL);
+    }
+
+    if (eventLog != null) {
+      events = BuildEvents.open(eventLog.toPath(),
+          project.getGroupId() + ":" + project.getArtifactId());
+    }
+
+    final long resolveStart = System.nanoTime();
+    events.resolveStart();
     final Path executable = buildExecutable();
+    events.resolveEnd(executable,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - resolveStart));
+
+    final Map<Set<String>, Set<String>> groups =
+        TargetFeature.group(targets, modules, targetFeatures, parsedManifest.getPackages());
+
     final Path outputDirectory = this.output.toPath();
+    final Path generationDirectory = bundle ? resolveStagingDirectory() : outputDirectory;
     final Path manifest = this.manifest.toPath();
-    final Reproto.Builder reproto = new Reproto.Builder(executable, outputDirectory, manifest);
+    final List<Reproto> built = new ArrayList<>();
+
+    for (final Map.Entry<Set<String>, Set<String>> group : groups.entrySet()) {
+      final Reproto.Builder reproto =
+          new Reproto.Builder(executable, generationDirectory, manifest);
 
-    reproto.debug(debug);
+      reproto.debug(debug);
 
-    for (final String module : modules) {
-      reproto.module(module);
+      for (final Path path : parsedManifest.getPaths()) {
+        reproto.path(path);
+      }
+
+      for (final String module : group.getKey()) {
+        reproto.module(module);
+      }
+
+      for (final String target : group.getValue()) {
+        reproto.target(target);
+      }
+
+      if (packagePrefix != null && !StringUtils.isBlank(packagePrefix)) {
+        reproto.packagePrefix(packagePrefix);
+      }
+
+      configureProcess(reproto);
+      built.add(reproto.build());
     }
 
-    for (final String target : targets) {
-      reproto.target(target);
+    final PostProcessor postProcessor = buildPostProcessor();
+
+    if (bundle) {
+      // stale files would otherwise end up in the bundle
+      deleteRecursively(generationDirectory);
     }
 
-    if (packagePrefix != null && !StringUtils.isBlank(packagePrefix)) {
-      reproto.packagePrefix(packagePrefix);
+    if (dedupe) {
+      final Fingerprint fingerprint = buildFingerprint(built, postProcessor);
+
+      if (getLog().isDebugEnabled()) {
+        getLog().debug("Fingerprint: " + fingerprint);
+      }
+
+      final Deduplication deduplication = new Deduplication(SessionScope.of(session),
+          Deduplication.Mode.parse(dedupeMode), getLog());
+
+      deduplication.generate(fingerprint, generationDirectory, resolveDedupeDirectory(),
+          built.get(0)::checkCancelled, directory -> {
+            deleteRecursively(directory);
+            generate(built.stream().map(r -> r.withOut(directory)).collect(Collectors.toList()),
+                postProcessor);
+          });
+    } else {
+      if (Deduplication.Mode.parse(dedupeMode) == Deduplication.Mode.LINK) {
+        // an earlier build might have materialized hard links into the output
+        Deduplication.unlink(generationDirectory);
+      }
+
+      generate(built, postProcessor);
     }
 
-    reproto.build().execute(getLog());
+    if (bundle) {
+      final SourceBundle sourceBundle = new SourceBundle(resolveBundleFile());
+
+      // files of the previous bundle which are no longer generated are removed from the output
+      final Map<String, SourceBundle.Checksum> previous = sourceBundle.entries();
+
+      final int packaged = sourceBundle.write(generationDirectory);
+      getLog().info("Bundled " + packaged + " file(s): " + sourceBundle.getPath());
+
+      final int changed = sourceBundle.extract(outputDirectory, previous);
+      getLog().info("Unpacked " + changed + " changed file(s): " + outputDirectory);
+
+      projectHelper.attachArtifact(project, "jar", SourceBundle.CLASSIFIER + executionSuffix(),
+          sourceBundle.getPath().toFile());
+    }
+
+    if (events.isEnabled()) {
+      final List<Path> files = SourceBundle.list(outputDirectory);
+      long bytes = 0L;
+
+      for (final Path file : files) {
+        bytes += Files.size(file);
+      }
+
+      events.filesGenerated(outputDirectory, files.size(), bytes);
+    }
+
+    if (impactReport) {
+      reportImpact(outputDirectory);
+    }
+
+    final OutputStats.Budget budget = new OutputStats.Budget(maxFilesPerPackage,
+        maxBytesPerPackage, maxTypesPerPackage, maxFieldsPerPackage);
+
+    if (stats || budget.isEnabled()) {
+      reportStats(outputDirectory, budget);
+    }
 
     if (Files.isDirectory(outputDirectory)) {
       project.addCompileSourceRoot(outputDirectory.toAbsolutePath().toString());
@@ -194,13 +600,287 @@ public class CompileReprotoMojo extends AbstractMojo {
     }
   }
 
+  private Path resolveBundleFile() {
+    if (bundleFile != null) {
+      return bundleFile.toPath();
+    }
+
+    final Path build = Paths.get(project.getBuild().getDirectory());
+    return build.resolve(SourceBundle.CLASSIFIER + executionSuffix() + ".jar");
+  }
+
+  private Path resolveStagingDirectory() {
+    if (stagingDirectory != null) {
+      return stagingDirectory.toPath();
+    }
+
+    return Paths.get(project.getBuild().getDirectory()).resolve("reproto-staging"
+        + executionSuffix());
+  }
+
+  private Path resolveTransformsDirectory() {
+    if (transformsDirectory != null) {
+      return transformsDirectory.toPath();
+    }
+
+    return Paths.get(project.getBuild().getDirectory()).resolve("reproto-transforms"
+        + executionSuffix());
+  }
+
+  /**
+   * Directory which deduplicated generations of this execution happen in.
+   */
+  private Path resolveDedupeDirectory() {
+    return Paths.get(project.getBuild().getDirectory()).resolve("reproto-dedupe"
+        + executionSuffix());
+  }
+
+  /**
+   * Suffix which keeps the files of executions in the same project apart, empty for the default
+   * execution.
+   */
+  private String executionSuffix() {
+    final String id = mojoExecution == null ? null : mojoExecution.getExecutionId();
+
+    if (id == null || "default".equals(id) || "default-cli".equals(id)) {
+      return "";
+    }
+
+    return "-" + id;
+  }
+
+  /**
+   * Collect statistics of the generated output, and check them against the budget.
+   */
+  private void reportStats(final Path outputDirectory, final OutputStats.Budget budget)
+      throws IOException {
+    final OutputStats outputStats = OutputStats.collect(outputDirectory);
+    outputStats.write(statsFile.toPath());
+
+    getLog().info("Generated " + outputStats.getTotal() + " in "
+        + outputStats.getPackages().size() + " package(s): " + statsFile);
+
+    outputStats.getPackages().forEach((packageName, packageStats) -> {
+      getLog().info("  " + packageName + ": " + packageStats);
+      events.packageStats(packageName, packageStats);
+    });
+
+    final List<String> exceeded = outputStats.exceeded(budget);
+
+    if (exceeded.isEmpty()) {
+      return;
+    }
+
+    if (BUDGET_FAIL.equals(budgetAction)) {
+      throw new IllegalStateException(
+          "Generated output exceeds its budget:\n  " + String.join("\n  ", exceeded));
+    }
+
+    for (final String e : exceeded) {
+      getLog().warn("Budget exceeded: " + e);
+    }
+  }
+
+  /**
+   * Compare the API of the generated types against the last generation, and publish the result.
+   */
+  private void reportImpact(final Path outputDirectory) throws IOException {
+    final ApiSnapshot current = ApiScanner.scan(outputDirectory);
+    final Optional<ApiSnapshot> previous = ApiSnapshot.read(apiSnapshot.toPath());
+    final ApiReport report = ApiReport.of(current, previous);
+
+    report.write(impactReportFile.toPath());
+    current.write(apiSnapshot.toPath());
+
+    project.getProperties().setProperty("reproto.abiHash", report.getAbiHash());
+
+    final ApiDiff diff = report.getDiff();
+
+    if (diff == null) {
+      getLog().info("API: " + current.getTypes().size() + " type(s), no previous generation");
+    } else if (diff.isEmpty()) {
+      getLog().info("API: unchanged");
+    } else {
+      getLog().info("API: " + diff.getAdded().size() + " type(s) added, "
+          + diff.getRemoved().size() + " removed, " + diff.getChanged().size() + " changed");
+
+      for (final String type : diff.getAdded()) {
+        getLog().info("  + " + type);
+      }
+
+      for (final String type : diff.getRemoved()) {
+        getLog().info("  - " + type);
+      }
+
+      for (final String type : diff.getChanged().keySet()) {
+        getLog().info("  ~ " + type);
+      }
+    }
+
+    getLog().info("Impact report: " + impactReportFile);
+  }
+
+  /**
+   * Run every reproto invocation and post-process their combined output.
+   *
+   * <p>Post-processing is part of generating, so that deduplicated executions reuse the
+   * post-processed output.
+   */
+  private void generate(final List<Reproto> invocations, final PostProcessor postProcessor)
+      throws Exception {
+    for (final Reproto reproto : invocations) {
+      final Reproto.Result result = reproto.execute(getLog());
+      getLog().info(project.getArtifactId() + ": reproto " + result);
+    }
+
+    final Path out = invocations.get(0).getOut();
+
+    if (postProcessor.isEmpty() || !Files.isDirectory(out)) {
+      return;
+    }
+
+    final PostProcessor.Result processed = postProcessor.process(out);
+    getLog().info("Post-processed " + processed.getTransformed() + " file(s), "
+        + processed.getRestored() + " restored unchanged: " + postProcessor.ids());
+  }
+
+  private PostProcessor buildPostProcessor() throws Exception {
+    final List<Transform> chain = new ArrayList<>();
+
+    for (final String name : transforms) {
+      switch (name) {
+        case RemoveUnusedImports.ID:
+          chain.add(new RemoveUnusedImports());
+          break;
+        case StripTrailingWhitespace.ID:
+          chain.add(new StripTrailingWhitespace());
+          break;
+        default:
+          final Class<?> type = Class.forName(name, true, getClass().getClassLoader());
+
+          if (!Transform.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(
+                "Transform `" + name + "` does not implement " + Transform.class.getName());
+          }
+
+          chain.add((Transform) type.getConstructor().newInstance());
+          break;
+      }
+    }
+
+    if (licenseHeader != null) {
+      final byte[] header = Files.readAllBytes(licenseHeader.toPath());
+      chain.add(new LicenseHeader(new String(header, StandardCharsets.UTF_8)));
+    }
+
+    return new PostProcessor(chain, resolveTransformsDirectory());
+  }
+
+  /**
+   * Configure how the reproto process is run.
+   */
+  private void configureProcess(final Reproto.Builder reproto) {
+    if (timeout > 0) {
+      reproto.timeout(Duration.ofSeconds(timeout));
+    }
+
+    if (nice != null) {
+      if (Platform.current().isWindows()) {
+        getLog().warn("Ignoring `nice`, not supported on this platform");
+      } else {
+        reproto.niceLevel(nice);
+      }
+    }
+
+    if (maxProcesses > 0) {
+      reproto.permits(SessionScope.of(session)
+          .computeIfAbsent(Arrays.asList(Semaphore.class), k -> new Semaphore(maxProcesses, true)));
+    }
+
+    final String failureBehavior = session.getRequest().getReactorFailureBehavior();
+
+    reproto.listener(events);
+
+    if (MavenExecutionRequest.REACTOR_FAIL_FAST.equals(failureBehavior)) {
+      reproto.cancelled(() -> session.getResult().hasExceptions());
+    }
+  }
+
+  private void deleteRecursively(final Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+
+    final List<Path> paths;
+
+    try (final Stream<Path> stream = Files.walk(directory)) {
+      paths = stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+
+    for (final Path path : paths) {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Build a fingerprint covering the arguments and all schema inputs of the given execution.
+   */
+  private Fingerprint buildFingerprint(
+      final List<Reproto> invocations, final PostProcessor postProcessor
+  ) throws IOException, InterruptedException {
+    final List<String> arguments = new ArrayList<>();
+
+    for (final Reproto reproto : invocations) {
+      arguments.add("invocation");
+      arguments.addAll(reproto.normalizedArguments());
+    }
+
+    for (final String id : postProcessor.ids()) {
+      arguments.add("transform:" + id);
+    }
+
+    final Reproto first = invocations.get(0);
+    return Fingerprint.of(executableIdentity(first.getExecutable()), arguments,
+        first.getManifest(), first.getPaths());
+  }
+
+  /**
+   * Identify an executable by its content, since the same binary is extracted into the plugins
+   * directory of every module. Hashes are computed once per session.
+   */
+  private String executableIdentity(final Path executable)
+      throws IOException, InterruptedException {
+    if (!Files.isRegularFile(executable)) {
+      return executable.toString();
+    }
+
+    final List<Object> key = Arrays.asList(Fingerprint.class, executable.toAbsolutePath(),
+        Files.getLastModifiedTime(executable), Files.size(executable));
+
+    return SessionScope.of(session).memoize(key, () -> Fingerprint.hash(executable));
+  }
+
+  /**
+   * Load the manifest, which is only parsed once per session unless it is modified.
+   */
+  private Manifest loadManifest(final Path path) throws IOException, InterruptedException {
+    if (!Files.isRegularFile(path)) {
+      throw new IllegalArgumentException("Manifest does not exist: " + path);
+    }
+
+    final List<Object> key = Arrays.asList(Manifest.class, path.toAbsolutePath(),
+        Files.getLastModifiedTime(path), Files.size(path));
+
+    return SessionScope.of(session).memoize(key, () -> Manifest.parse(path));
+  }
+
   /**
    * Build a path to the reproto executable.
    *
    * @return an path corresponding to the executable
    */
   private Path buildExecutable() throws Exception {
-    final GcsClient gcsClient = new GcsClient();
+    final GcsClient gcsClient = new GcsClient(releasesUrl);
 
     if (this.executable != null) {
       final Path executable = Paths.get(this.executable).toAbsolutePath();
@@ -210,7 +890,19 @@ public class CompileReprotoMojo extends AbstractMojo {
             "`-D reproto.executable` is not an executable: " + executable);
       }
 
-      return executable;
+      return verifyVersion(executable);
+    }
+
+    final Toolchain toolchain =
+        toolchainManager.getToolchainFromBuildContext(ReprotoToolchain.TYPE, session);
+
+    if (toolchain != null) {
+      final String tool = toolchain.findTool(EXECUTABLE);
+
+      if (tool != null) {
+        getLog().info("Using toolchain: " + toolchain);
+        return verifyVersion(Paths.get(tool));
+      }
     }
 
     final Path downloadExecutable = downloadExecutable(gcsClient);
@@ -219,23 +911,90 @@ public class CompileReprotoMojo extends AbstractMojo {
       return downloadExecutable;
     }
 
-    return Paths.get(EXECUTABLE);
+    return verifyVersion(Paths.get(EXECUTABLE));
+  }
+
+  /**
+   * Verify that the given executable matches the required version, since a mismatched binary
+   * silently generates different code.
+   *
+   * <p>The version of every executable is only determined once per session.
+   */
+  private Path verifyVersion(final Path executable) throws IOException, InterruptedException {
+    if (!checkVersion) {
+      return executable;
+    }
+
+    final List<Object> key = new ArrayList<>(Arrays.asList(ExecutableVersion.class, executable));
+
+    if (Files.isRegularFile(executable)) {
+      key.add(Files.getLastModifiedTime(executable));
+      key.add(Files.size(executable));
+    }
+
+    final Version actual;
+
+    try {
+      actual = SessionScope.of(session)
+          .<Version, IOException>memoize(key, () -> ExecutableVersion.probe(executable));
+    } catch (final IOException e) {
+      throw new IOException(executable + ": failed to determine version", e);
+    }
+
+    if (!Range.parse(version).matches(actual)) {
+      throw new IllegalStateException(executable + ": version " + actual
+          + " does not match the required version " + version
+          + " (disable with `-D reproto.checkVersion=false`)");
+    }
+
+    getLog().debug(executable + ": version " + actual);
+    return executable;
   }
 
-  private Version getLatestVersion(final Path cacheDir, final GcsClient gcsClient) throws IOException {
+  /**
+   * Get the latest release matching the requested version.
+   *
+   * <p>A stale cached release is used as-is while the releases listing is refreshed in the
+   * background for the next build, so the build only waits on the network when there is no
+   * usable cached release.
+   */
+  private Version getLatestVersion(final Path cacheDir, final GcsClient gcsClient)
+      throws IOException {
     final Path path = cacheDir.resolve("version");
+    final Range req = Range.parse(version);
 
     final Cached cached = readCachedRelease(path);
 
-    if (!cached.isExpired()) {
-      return cached.getRelease().getVersion();
+    // a release cached for another version requirement is of no use
+    final GcsClient.Release known = Optional.ofNullable(cached.getRelease())
+        .filter(release -> req.matches(release.getVersion()))
+        .orElse(null);
+
+    if (known != null && !cached.isExpired()) {
+      return known.getVersion();
     }
 
-    final Range req = Range.parse(version);
-    final GcsClient.Release release = gcsClient.getLatestRelease(cached.getRelease(), req);
+    if (session.isOffline()) {
+      if (known == null) {
+        throw new IllegalStateException(
+            "No cached release available in offline mode (" + path + "), "
+                + "build once online or use `-D reproto.executable`");
+      }
+
+      getLog().info("Offline, using cached release: " + known);
+      return known.getVersion();
+    }
+
+    if (known != null) {
+      getLog().info("Using cached release (" + known + "), refreshing in the background");
+      refreshInBackground(path, gcsClient, known, req);
+      return known.getVersion();
+    }
+
+    final GcsClient.Release release = gcsClient.getLatestRelease(null, req);
 
     try {
-      writeLatestVersion(path, release);
+      writeLatestVersion(path, release, getLog());
     } catch (final Exception e) {
       getLog().warn("Failed to write latest version: " + path, e);
     }
@@ -243,24 +1002,78 @@ public class CompileReprotoMojo extends AbstractMojo {
     return release.getVersion();
   }
 
-  private void writeLatestVersion(final Path path, final GcsClient.Release release) throws IOException {
+  /**
+   * Refresh the cached release in the background, unless a refresh is already in progress.
+   */
+  private void refreshInBackground(
+      final Path path, final GcsClient gcsClient, final GcsClient.Release known, final Range req
+  ) {
+    final Path key = path.toAbsolutePath();
+
+    if (!REFRESHING.add(key)) {
+      return;
+    }
+
+    refreshExecutor().execute(() -> {
+      try {
+        writeLatestVersion(path, gcsClient.getLatestRelease(known, req), REFRESH_LOG);
+      } catch (final Exception e) {
+        REFRESH_LOG.warn("Failed to refresh latest version: " + path, e);
+      } finally {
+        REFRESHING.remove(key);
+      }
+    });
+  }
+
+  /**
+   * Get the executor for background refreshes, creating it and the shutdown hook which waits for it
+   * on first use, so that builds which never refresh don't pay for either.
+   */
+  private static synchronized ExecutorService refreshExecutor() {
+    if (refreshExecutor != null) {
+      return refreshExecutor;
+    }
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+      final Thread thread = new Thread(r, "reproto-version-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      executor.shutdown();
+
+      try {
+        executor.awaitTermination(REFRESH_SHUTDOWN_MS, TimeUnit.MILLISECONDS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, "reproto-version-refresh-shutdown"));
+
+    refreshExecutor = executor;
+    return executor;
+  }
+
+  private static void writeLatestVersion(
+      final Path path, final GcsClient.Release release, final Log log
+  ) throws IOException {
     final Path parent = path.getParent();
 
     if (!Files.isDirectory(parent)) {
-      getLog().info("Creating directory: " + parent);
+      log.info("Creating directory: " + parent);
       Files.createDirectories(parent);
     }
 
-    getLog().info("Writing version (" + release + "): " + path);
+    log.info("Writing version (" + release + "): " + path);
 
-    try (final OutputStream out = Files.newOutputStream(path)) {
-      mapper.writeValue(out, release);
-    }
+    AtomicFiles.write(path, out -> mapper.writeValue(out, release));
   }
 
   private Cached readCachedRelease(final Path path) throws IOException {
     final long now = System.currentTimeMillis();
 
+    deleteStaleTemporaryFiles(path.getParent(), now);
+
     if (!Files.isRegularFile(path)) {
       return new Cached(null, true);
     }
@@ -274,22 +1087,46 @@ public class CompileReprotoMojo extends AbstractMojo {
       release = mapper.readValue(in, GcsClient.Release.class);
     } catch (final Exception e) {
       getLog().warn("Unable to read file (deleting): " + path, e);
-      Files.delete(path);
+      Files.deleteIfExists(path);
       return new Cached(null, true);
     }
 
     return new Cached(release, diff >= CACHE_TIME_MS);
   }
 
-  private Path downloadExecutable(final GcsClient gcsClient) throws Exception {
-    final String userHome = System.getProperty("user.home");
+  /**
+   * Delete temporary version files left behind by writes which never completed, like a
+   * background refresh which was still running when its build exited.
+   */
+  private void deleteStaleTemporaryFiles(final Path directory, final long now)
+      throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
 
-    if (userHome == null || StringUtils.isBlank(userHome)) {
-      throw new IllegalStateException("user.home: property not set");
+    final List<Path> stale;
+
+    try (final Stream<Path> stream = Files.list(directory)) {
+      stale = stream.filter(p -> {
+        final String name = p.getFileName().toString();
+        return name.startsWith(".version") && name.endsWith(".tmp");
+      }).collect(Collectors.toList());
     }
 
-    final Path home = Paths.get(userHome);
-    final Path cacheDir = home.resolve(".cache").resolve("reproto-maven-plugin");
+    for (final Path temporary : stale) {
+      try {
+        if (now - Files.getLastModifiedTime(temporary).toMillis() >= STALE_TEMPORARY_MS) {
+          getLog().debug("Deleting stale temporary file: " + temporary);
+          Files.deleteIfExists(temporary);
+        }
+      } catch (final NoSuchFileException e) {
+        // removed by the build which created it
+      }
+    }
+  }
+
+  private Path downloadExecutable(final GcsClient gcsClient) throws Exception {
+    final Path cacheDir = resolveCacheDirectory();
 
     final Version version = this.getLatestVersion(cacheDir, gcsClient);
 
@@ -307,26 +1144,25 @@ public class CompileReprotoMojo extends AbstractMojo {
     final String executableName = String.format("%s-%s", EXECUTABLE, version);
     final Path executable = pluginsDirectory.resolve(executableName);
 
-    final String os = resolveOs();
-    final String arch = resolveArch();
+    final Platform platform = Platform.current();
+    final List<String> suffixes = platform.archiveSuffixes();
 
-    if (os == null) {
-      return null;
-    }
-
-    if (arch == null) {
-      return null;
+    if (suffixes.isEmpty()) {
+      return fallbackExecutable(cacheDir, version,
+          "No releases are available for platform `" + platform + "`");
     }
 
-    final String archiveName = "reproto-" + version + "-" + os + "-" + arch + ".tar.gz";
+    final Optional<String> fetched = fetchArchive(cacheDir, gcsClient, version, suffixes);
 
-    final String archive = gcsClient.downloadUrl(archiveName);
+    if (!fetched.isPresent()) {
+      return fallbackExecutable(cacheDir, version,
+          "No release available for platform `" + platform + "`");
+    }
 
+    final String archiveName = fetched.get();
     final Path cachedArchive = cacheDir.resolve(archiveName);
 
-    if (!Files.isRegularFile(cachedArchive)) {
-      downloadToCache(archive, cachedArchive);
-    }
+    useCacheEntry(cacheDir, archiveName);
 
     // file already exists
     if (Files.isExecutable(executable)) {
@@ -335,6 +1171,7 @@ public class CompileReprotoMojo extends AbstractMojo {
     }
 
     extractArchive(cachedArchive, pluginsDirectory, executableName);
+    removeOtherExecutables(pluginsDirectory, executableName);
 
     // file already exists
     if (!Files.isExecutable(executable)) {
@@ -345,6 +1182,190 @@ public class CompileReprotoMojo extends AbstractMojo {
     return executable;
   }
 
+  /**
+   * Make sure that the release archive of the first of the given platform suffixes which has a
+   * release is in the cache.
+   *
+   * @return name of the cached archive, or empty if none of the suffixes have a release
+   */
+  private Optional<String> fetchArchive(
+      final Path cacheDir, final GcsClient gcsClient, final Version version,
+      final List<String> suffixes
+  ) throws Exception {
+    final List<String> archiveNames = suffixes.stream()
+        .map(suffix -> "reproto-" + version + "-" + suffix + ".tar.gz")
+        .collect(Collectors.toList());
+
+    for (final String archiveName : archiveNames) {
+      if (markCacheEntry(cacheDir, archiveName)
+          && Files.isRegularFile(cacheDir.resolve(archiveName))) {
+        events.cacheHit(archiveName);
+        return Optional.of(archiveName);
+      }
+    }
+
+    if (session.isOffline()) {
+      throw new IllegalStateException(
+          "Archive is not cached, and can't be downloaded in offline mode: "
+              + cacheDir.resolve(archiveNames.get(0)));
+    }
+
+    for (final String archiveName : archiveNames) {
+      events.cacheMiss(archiveName);
+      final String archive = gcsClient.downloadUrl(archiveName);
+
+      try {
+        downloadToCache(archive, cacheDir.resolve(archiveName));
+        return Optional.of(archiveName);
+      } catch (final FileNotFoundException e) {
+        getLog().info("No release available: " + archive);
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  /**
+   * Find an executable when no release can be downloaded for the current platform.
+   *
+   * @return the executable, or {@code null} to use the one on PATH
+   */
+  private Path fallbackExecutable(final Path cacheDir, final Version version, final String reason)
+      throws Exception {
+    if (buildFromSource) {
+      getLog().warn(reason + ", building from source");
+      return buildFromSource(cacheDir, version);
+    }
+
+    getLog().warn(reason + ", falling back to `" + EXECUTABLE + "` on PATH "
+        + "(set `-D reproto.buildFromSource` to build it using cargo)");
+    return null;
+  }
+
+  /**
+   * Build the given version of reproto from source using cargo, which is only done once for
+   * every version.
+   */
+  private Path buildFromSource(final Path cacheDir, final Version version) throws Exception {
+    final Platform platform = Platform.current();
+    final Path root = cacheDir.resolve("source-" + version + "-" + platform);
+    final Path executable =
+        root.resolve("bin").resolve(platform.isWindows() ? EXECUTABLE + ".exe" : EXECUTABLE);
+
+    synchronized (SOURCE_BUILD_LOCK) {
+      if (markCacheEntry(cacheDir, root.getFileName().toString())
+          && Files.isExecutable(executable)) {
+        getLog().info("Using existing (source built) executable: " + executable);
+        useCacheEntry(cacheDir, root.getFileName().toString());
+        return executable;
+      }
+
+      if (session.isOffline()) {
+        throw new IllegalStateException("Can't build from source in offline mode: " + executable);
+      }
+
+      final List<String> command = Arrays.asList(CARGO, "install", "--root", root.toString(),
+          "--version", "=" + version, EXECUTABLE);
+
+      getLog().info("Building from source: " + String.join(" ", command));
+
+      final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+      process.getOutputStream().close();
+
+      try (final BufferedReader reader = new BufferedReader(
+          new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+          getLog().info(CARGO + ": " + line);
+        }
+      }
+
+      final int status = process.waitFor();
+
+      if (status != 0) {
+        throw new RuntimeException(CARGO + ": exited with non-zero status (" + status + ")");
+      }
+
+      if (!Files.isExecutable(executable)) {
+        throw new IllegalStateException("Building from source did not produce: " + executable);
+      }
+
+      useCacheEntry(cacheDir, root.getFileName().toString());
+      return executable;
+    }
+  }
+
+  private Path resolveCacheDirectory() {
+    if (cacheDirectory != null) {
+      return cacheDirectory.toPath();
+    }
+
+    return CacheIndex.defaultDirectory();
+  }
+
+  /**
+   * Mark an entry in the cache as used before relying on it, so that it isn't evicted by a
+   * concurrent build pruning the cache.
+   *
+   * @return {@code true} if the entry exists
+   */
+  private boolean markCacheEntry(final Path cacheDir, final String name) {
+    try {
+      return new CacheIndex(cacheDir).touch(name, System.currentTimeMillis());
+    } catch (final IOException e) {
+      getLog().warn("Failed to update cache index: " + cacheDir, e);
+      return Files.exists(cacheDir.resolve(name));
+    }
+  }
+
+  /**
+   * Record the use of an entry in the cache, and evict entries if the cache is over budget.
+   *
+   * <p>Failing to maintain the cache doesn't fail the build.
+   */
+  private void useCacheEntry(final Path cacheDir, final String name) {
+    final CacheIndex index = new CacheIndex(cacheDir);
+    final long now = System.currentTimeMillis();
+
+    try {
+      index.touch(name, now);
+
+      if (cacheMaxSize <= 0 && cacheMaxAge <= 0) {
+        return;
+      }
+
+      final List<CacheIndex.Entry> evicted = index.prune(cacheMaxSize * 1024L * 1024L,
+          TimeUnit.DAYS.toMillis(cacheMaxAge), now);
+
+      for (final CacheIndex.Entry entry : evicted) {
+        getLog().info("Evicted from cache: " + entry.getName());
+      }
+    } catch (final IOException e) {
+      getLog().warn("Failed to update cache index: " + cacheDir, e);
+    }
+  }
+
+  /**
+   * Remove executables of other versions which have been extracted into the plugins directory.
+   */
+  private void removeOtherExecutables(final Path pluginsDirectory, final String executableName)
+      throws IOException {
+    final List<Path> others;
+
+    try (final Stream<Path> stream = Files.list(pluginsDirectory)) {
+      others = stream
+          .filter(p -> p.getFileName().toString().matches(EXECUTABLE + "-\\d+(\\.\\d+)*"))
+          .filter(p -> !p.getFileName().toString().equals(executableName))
+          .collect(Collectors.toList());
+    }
+
+    for (final Path other : others) {
+      getLog().info("Removing executable for other version: " + other);
+      Files.deleteIfExists(other);
+    }
+  }
+
   private void extractArchive(final Path source, final Path target, final String executableName)
       throws IOException, CompressorException {
     final byte[] buffer = new byte[4096];
@@ -392,8 +1413,6 @@ public class CompileReprotoMojo extends AbstractMojo {
   private void downloadToCache(
       final String archive, final Path cachedArchive
   ) throws IOException {
-    final byte[] buffer = new byte[4096];
-
     if (!Files.isDirectory(cachedArchive.getParent())) {
       Files.createDirectories(cachedArchive.getParent());
     }
@@ -401,8 +1420,13 @@ public class CompileReprotoMojo extends AbstractMojo {
     getLog().info("Downloading archive to cache: " + archive);
     final URL u = new URL(archive);
 
-    try (final OutputStream out = Files.newOutputStream(cachedArchive,
-        StandardOpenOption.CREATE_NEW)) {
+    final long start = System.nanoTime();
+
+    // other builds might be looking for or downloading the same archive concurrently
+    AtomicFiles.write(cachedArchive, out -> {
+      final byte[] buffer = new byte[4096];
+      long bytes = 0L;
+
       try (final InputStream in = u.openStream()) {
         while (true) {
           final int read = in.read(buffer);
@@ -412,9 +1436,12 @@ public class CompileReprotoMojo extends AbstractMojo {
           }
 
           out.write(buffer, 0, read);
+          bytes += read;
         }
       }
-    }
+
+      events.download(archive, bytes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    });
   }
 
   /**
@@ -462,42 +1489,6 @@ public class CompileReprotoMojo extends AbstractMojo {
     return permissions;
   }
 
-  private String resolveOs() {
-    final String osName = System.getProperty("os.name");
-
-    if (osName.toLowerCase().contains("linux")) {
-      return "linux";
-    }
-
-    if (osName.toLowerCase().contains("mac")) {
-      return "osx";
-    }
-
-    if (osName.toLowerCase().contains("windows")) {
-      return "win";
-    }
-
-    return null;
-  }
-
-  private String resolveArch() {
-    final String osArch = System.getProperty("os.arch");
-
-    if ("x86_64".equals(osArch)) {
-      return "x86_64";
-    }
-
-    if ("amd64".equals(osArch)) {
-      return "x86_64";
-    }
-
-    if ("x86_32".equals(osArch)) {
-      return "x86_32";
-    }
-
-    return null;
-  }
-
   private Path resolveBinaryArtifact(final Artifact artifact) throws Exception {
     final ArtifactResolutionResult result;
 
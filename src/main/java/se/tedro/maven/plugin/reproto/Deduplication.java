@@ -0,0 +1,195 @@
+package se.tedro.maven.plugin.reproto;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs identical generations once per session and materializes the result into the output
+ * directory of every execution which shares its fingerprint.
+ *
+ * <p>Generations happen in a directory private to the execution which runs them, so that only
+ * generated files are materialized and never other content of an output directory, like the
+ * output of other executions or stale files of an earlier build.
+ */
+@RequiredArgsConstructor
+public class Deduplication {
+  private final SessionScope scope;
+  private final Mode mode;
+  private final Log log;
+
+  /**
+   * Generate into the given output directory, or reuse the output of an identical generation.
+   *
+   * <p>Concurrent executions with the same fingerprint block until the first one has completed.
+   *
+   * @param staging directory private to this execution, which is generated into if no identical
+   * generation has happened yet, and which has to remain until the end of the session
+   * @param check called regularly while waiting, see {@link Reproto#checkCancelled()}. Waiting
+   * is not limited by a timeout, since the identical execution applies its own.
+   */
+  public void generate(
+      final Fingerprint fingerprint, final Path out, final Path staging, final Runnable check,
+      final Generator generator
+  ) throws Exception {
+    final CompletableFuture<Path> created = new CompletableFuture<>();
+
+    final CompletableFuture<Path> existing =
+        scope.computeIfAbsent(Arrays.asList(Deduplication.class, fingerprint), k -> created);
+
+    if (existing == created) {
+      try {
+        generator.generate(staging);
+      } catch (final Throwable e) {
+        // waiters would otherwise block forever
+        created.completeExceptionally(e);
+        throw e;
+      }
+
+      created.complete(staging);
+      materialize(staging, out);
+      return;
+    }
+
+    final Path source = await(fingerprint, existing, check);
+    log.info("Reusing output of identical execution (" + mode + "): " + source + " -> " + out);
+    materialize(source, out);
+  }
+
+  private static Path await(
+      final Fingerprint fingerprint, final CompletableFuture<Path> existing,
+      final Runnable check
+  ) throws InterruptedException {
+    while (true) {
+      try {
+        return existing.get(Reproto.POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+      } catch (final TimeoutException e) {
+        check.run();
+      } catch (final ExecutionException e) {
+        throw new RuntimeException(
+            "Identical execution (" + fingerprint + ") failed: " + e.getCause().getMessage(),
+            e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Give every file in the given directory an inode of its own.
+   *
+   * <p>Files might be hard linked into the output of other executions by an earlier build, and
+   * reproto rewrites files in place, which would otherwise change the output of those executions
+   * as well. Materializing replaces files instead, so this is only needed when generating into a
+   * directory which has been materialized into before.
+   */
+  public static void unlink(final Path out) throws IOException {
+    if (!Files.isDirectory(out)) {
+      return;
+    }
+
+    final List<Path> files;
+
+    try (final Stream<Path> stream = Files.walk(out)) {
+      files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+
+    for (final Path file : files) {
+      if (!isLinked(file)) {
+        continue;
+      }
+
+      AtomicFiles.write(file, copy -> Files.copy(file, copy));
+    }
+  }
+
+  private static boolean isLinked(final Path file) throws IOException {
+    try {
+      return ((Number) Files.getAttribute(file, "unix:nlink")).intValue() > 1;
+    } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+      // link count unknown, assume the worst
+      return true;
+    }
+  }
+
+  /**
+   * Replace the files of the given generation in the output directory.
+   *
+   * <p>Existing files are replaced rather than written to, since they might be hard linked into
+   * the output of other executions.
+   */
+  private void materialize(final Path source, final Path out) throws IOException {
+    if (!Files.isDirectory(source)) {
+      return;
+    }
+
+    final List<Path> files;
+
+    try (final Stream<Path> stream = Files.walk(source)) {
+      files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+
+    for (final Path file : files) {
+      final Path target = out.resolve(source.relativize(file).toString());
+      Files.createDirectories(target.getParent());
+      Files.deleteIfExists(target);
+
+      if (mode == Mode.LINK) {
+        try {
+          Files.createLink(target, file);
+          continue;
+        } catch (final IOException | UnsupportedOperationException e) {
+          log.debug("Failed to link (copying instead): " + target, e);
+        }
+      }
+
+      Files.copy(file, target);
+    }
+  }
+
+  /**
+   * How the output of an earlier generation is materialized.
+   */
+  public enum Mode {
+    /**
+     * Copy every file.
+     */
+    COPY,
+    /**
+     * Hard link every file, falling back to copying where links are not supported.
+     */
+    LINK;
+
+    public static Mode parse(final String mode) {
+      try {
+        return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+      } catch (final IllegalArgumentException e) {
+        throw new IllegalArgumentException(
+            "Unsupported mode `" + mode + "`, expected one of: copy, link");
+      }
+    }
+
+    @Override
+    public String toString() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  @FunctionalInterface
+  public interface Generator {
+    /**
+     * Generate into the given empty directory.
+     */
+    void generate(Path directory) throws Exception;
+  }
+}
@@ -0,0 +1,72 @@
+package se.tedro.maven.plugin.reproto;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Determines the version of a reproto executable by running {@code reproto --version}.
+ */
+public class ExecutableVersion {
+  public static final long TIMEOUT_SECONDS = 30L;
+
+  private static final Pattern VERSION = Pattern.compile("(\\d+(\\.\\d+)+)");
+
+  /**
+   * Run the given executable and parse the version it reports.
+   */
+  public static Version probe(final Path executable) throws IOException, InterruptedException {
+    return probe(executable, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+  }
+
+  static Version probe(final Path executable, final long timeoutMs)
+      throws IOException, InterruptedException {
+    // output goes to a file, so that an executable which hangs can't block reading it
+    final Path outputFile = Files.createTempFile("reproto-version", ".out");
+
+    try {
+      final Process process = new ProcessBuilder(executable.toString(), "--version")
+          .redirectErrorStream(true)
+          .redirectOutput(outputFile.toFile())
+          .start();
+
+      process.getOutputStream().close();
+
+      if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+        process.destroyForcibly();
+        throw new IllegalStateException(
+            executable + ": `--version` timed out after " + timeoutMs + "ms");
+      }
+
+      final String output =
+          new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8).trim();
+
+      if (process.exitValue() != 0) {
+        throw new IllegalStateException(executable + ": `--version` failed: " + output);
+      }
+
+      return parse(output).orElseThrow(() -> new IllegalStateException(
+          executable + ": unrecognized `--version` output: " + output));
+    } finally {
+      Files.deleteIfExists(outputFile);
+    }
+  }
+
+  /**
+   * Parse the output of {@code reproto --version}, like {@code reproto 0.3.36}.
+   */
+  public static Optional<Version> parse(final String output) {
+    final Matcher m = VERSION.matcher(output);
+
+    if (!m.find()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(Version.parse(m.group(1)));
+  }
+}
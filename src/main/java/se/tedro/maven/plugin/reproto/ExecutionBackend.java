@@ -0,0 +1,13 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Runs a single reproto invocation.
+ *
+ * <p>Backends are responsible for honoring the timeout and cancellation of the invocation (see
+ * {@link Reproto#checkInterrupted(long)}), and for notifying its listener.
+ */
+public interface ExecutionBackend {
+  Reproto.Result execute(Reproto reproto, Log log) throws Exception;
+}
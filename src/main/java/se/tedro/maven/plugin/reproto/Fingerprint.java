@@ -0,0 +1,148 @@
+package se.tedro.maven.plugin.reproto;
+
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Identifies a single generation by the arguments passed to reproto and the contents of all of
+ * its inputs.
+ */
+@Data
+public class Fingerprint {
+  public static final String SCHEMA_EXTENSION = ".reproto";
+
+  private final String hash;
+
+  /**
+   * Build a fingerprint for the given execution.
+   *
+   * @param executable identity of the executable used to perform the generation
+   * @param arguments normalized arguments, see {@link Reproto#normalizedArguments()}
+   * @param manifest manifest used in the generation
+   * @param paths directories to scan for schemas
+   */
+  public static Fingerprint of(
+      final String executable, final List<String> arguments, final Path manifest,
+      final Collection<Path> paths
+  ) throws IOException {
+    final MessageDigest digest = newDigest();
+
+    update(digest, executable);
+
+    for (final String argument : arguments) {
+      update(digest, argument);
+    }
+
+    if (Files.isRegularFile(manifest)) {
+      update(digest, manifest.getFileName().toString());
+      digest.update(Files.readAllBytes(manifest));
+    }
+
+    for (final Path path : paths) {
+      update(digest, "--path");
+
+      for (final Path schema : schemas(path)) {
+        update(digest, path.relativize(schema).toString());
+        digest.update(Files.readAllBytes(schema));
+      }
+    }
+
+    return new Fingerprint(hex(digest.digest()));
+  }
+
+  /**
+   * Hash the given parts, which are separated so that they can't run into each other.
+   */
+  public static String hash(final byte[]... parts) {
+    final MessageDigest digest = newDigest();
+
+    for (final byte[] part : parts) {
+      digest.update(part);
+      digest.update((byte) 0);
+    }
+
+    return hex(digest.digest());
+  }
+
+  /**
+   * Hash the content of the given file.
+   */
+  public static String hash(final Path file) throws IOException {
+    final MessageDigest digest = newDigest();
+    final byte[] buffer = new byte[65536];
+
+    try (final InputStream in = Files.newInputStream(file)) {
+      while (true) {
+        final int read = in.read(buffer);
+
+        if (read < 0) {
+          break;
+        }
+
+        digest.update(buffer, 0, read);
+      }
+    }
+
+    return hex(digest.digest());
+  }
+
+  /**
+   * List all schemas under the given path in a stable order.
+   */
+  static List<Path> schemas(final Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      return Collections.emptyList();
+    }
+
+    try (final Stream<Path> files = Files.walk(path)) {
+      final List<Path> schemas = files
+          .filter(Files::isRegularFile)
+          .filter(p -> p.getFileName().toString().endsWith(SCHEMA_EXTENSION))
+          .collect(Collectors.toCollection(ArrayList::new));
+
+      schemas.sort(null);
+      return schemas;
+    }
+  }
+
+  private static void update(final MessageDigest digest, final String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  public static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256: not supported", e);
+    }
+  }
+
+  public static String hex(final byte[] bytes) {
+    final StringBuilder builder = new StringBuilder(bytes.length * 2);
+
+    for (final byte b : bytes) {
+      builder.append(String.format("%02x", b & 0xff));
+    }
+
+    return builder.toString();
+  }
+
+  @Override
+  public String toString() {
+    return hash;
+  }
+}
@@ -0,0 +1,115 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs reproto as a separate process.
+ */
+public class ForkingBackend implements ExecutionBackend {
+  public static final String NICE = "nice";
+
+  /**
+   * How long to wait for the remaining output of a killed process.
+   */
+  public static final long PUMP_TIMEOUT_MS = 1000L;
+
+  public static final ForkingBackend INSTANCE = new ForkingBackend();
+
+  @Override
+  public Reproto.Result execute(final Reproto reproto, final Log log) throws Exception {
+    final List<String> command = new ArrayList<>();
+
+    reproto.getNiceLevel().ifPresent(level -> {
+      command.add(NICE);
+      command.add("-n");
+      command.add(level.toString());
+    });
+
+    command.add(reproto.getExecutable().toString());
+    command.addAll(reproto.arguments());
+
+    log.info("Executing: " + String.join(" ", command));
+
+    final Reproto.LineConsumer output = new Reproto.LineConsumer();
+    final Reproto.LineConsumer error = new Reproto.LineConsumer();
+
+    final long start = System.nanoTime();
+
+    final Process process = new ProcessBuilder(command).start();
+    process.getOutputStream().close();
+    reproto.getListener().processSpawn(command);
+
+    final Thread outputPump = pump(process.getInputStream(), output, "reproto-stdout");
+    final Thread errorPump = pump(process.getErrorStream(), error, "reproto-stderr");
+
+    final ProcessStats stats = ProcessStats.of(process);
+    // quick invocations would otherwise exit before the first sample
+    stats.sample();
+
+    try {
+      while (!process.waitFor(Reproto.POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        stats.sample();
+        reproto.checkInterrupted(start);
+      }
+    } catch (final RuntimeException e) {
+      process.destroyForcibly();
+      reproto.getListener().processExit(-1, Reproto.elapsedMs(start), stats.usage());
+
+      // the output of a hung or killed process is what explains it
+      outputPump.join(PUMP_TIMEOUT_MS);
+      errorPump.join(PUMP_TIMEOUT_MS);
+      output.log(log, error);
+      throw e;
+    } finally {
+      if (process.isAlive()) {
+        process.destroyForcibly();
+      }
+    }
+
+    outputPump.join();
+    errorPump.join();
+
+    final int status = process.exitValue();
+    final long duration = Reproto.elapsedMs(start);
+    reproto.getListener().processExit(status, duration, stats.usage());
+
+    output.log(log, error);
+
+    if (status != 0) {
+      throw new RuntimeException(
+          reproto.getExecutable() + ": exited with non-zero status (" + status + ")");
+    }
+
+    return new Reproto.Result(duration, stats.usage());
+  }
+
+  private static Thread pump(
+      final InputStream in, final Reproto.LineConsumer consumer, final String name
+  ) {
+    final Thread thread = new Thread(() -> {
+      try (final BufferedReader reader =
+               new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+          consumer.consumeLine(line);
+        }
+      } catch (final IOException e) {
+        consumer.consumeLine("failed to read output: " + e.getMessage());
+      }
+    }, name);
+
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+}
@@ -0,0 +1,43 @@
+package se.tedro.maven.plugin.reproto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Modules supported by the java backend of reproto, each enabling a feature of the generated
+ * code.
+ */
+public enum JavaModule {
+  BUILDER("builder"),
+  CONSTRUCTOR_PROPERTIES("constructor_properties"),
+  GRPC("grpc"),
+  JACKSON("jackson"),
+  LOMBOK("lombok"),
+  MUTABLE("mutable"),
+  NULLABLE("nullable"),
+  OKHTTP("okhttp");
+
+  /**
+   * Identifiers of all modules, as passed to {@code --module}.
+   */
+  public static final Set<String> IDS = Collections.unmodifiableSet(new LinkedHashSet<>(
+      Arrays.stream(values()).map(JavaModule::id).collect(Collectors.toList())));
+
+  private final String id;
+
+  JavaModule(final String id) {
+    this.id = id;
+  }
+
+  public String id() {
+    return id;
+  }
+
+  public static Optional<JavaModule> of(final String id) {
+    return Arrays.stream(values()).filter(m -> m.id.equals(id)).findFirst();
+  }
+}
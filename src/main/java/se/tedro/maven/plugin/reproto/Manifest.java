@@ -0,0 +1,416 @@
+package se.tedro.maven.plugin.reproto;
+
+import lombok.Data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The parts of a {@code reproto.toml} manifest which the plugin needs to know about.
+ *
+ * <p>This only understands the subset of TOML used by manifests, anything it doesn't recognize is
+ * skipped and left for reproto to deal with.
+ */
+@Data
+public class Manifest {
+  /**
+   * Modules supported by the java backend.
+   */
+  public static final Set<String> JAVA_MODULES = JavaModule.IDS;
+
+  public static final String MAVEN_PRESET = "maven";
+
+  /**
+   * Schema path which is added by the maven preset, relative to the manifest.
+   */
+  public static final String MAVEN_SCHEMA_PATH = "src/main/reproto";
+
+  private final Path path;
+  private final List<Path> paths;
+  private final Set<String> presets;
+  private final Set<String> modules;
+  private final Set<String> packages;
+  private final boolean repository;
+
+  /**
+   * Parse the manifest at the given path.
+   */
+  public static Manifest parse(final Path path) throws IOException {
+    final Path base = path.toAbsolutePath().getParent();
+    final Parser parser = new Parser(path, Files.readAllLines(path, StandardCharsets.UTF_8));
+    final Map<String, List<String>> values = parser.parse();
+
+    final Set<String> presets = new LinkedHashSet<>(values.getOrDefault("presets", list()));
+    final Set<String> modules = new LinkedHashSet<>(values.getOrDefault("modules", list()));
+    final Set<String> packages = new LinkedHashSet<>(values.getOrDefault("packages", list()));
+
+    final List<Path> paths = new ArrayList<>();
+
+    for (final String p : values.getOrDefault("paths", list())) {
+      paths.add(base.resolve(p).normalize());
+    }
+
+    if (presets.contains(MAVEN_PRESET)) {
+      paths.add(base.resolve(MAVEN_SCHEMA_PATH));
+    }
+
+    final boolean repository = values.containsKey("repository");
+    return new Manifest(path, paths, presets, modules, packages, repository);
+  }
+
+  /**
+   * Validate the manifest together with additional configuration from the plugin.
+   *
+   * @param targets additional packages to build
+   * @param modules additional modules to enable
+   * @param checkModules if modules should be checked against {@link #JAVA_MODULES}
+   * @return list of problems found, empty if the manifest is valid
+   */
+  public List<String> validate(
+      final Set<String> targets, final List<String> modules, final boolean checkModules
+  ) {
+    final List<String> errors = new ArrayList<>();
+
+    for (final Path p : paths) {
+      if (!Files.isDirectory(p)) {
+        errors.add("path does not exist: " + p);
+      }
+    }
+
+    final Set<String> allModules = new LinkedHashSet<>(this.modules);
+    allModules.addAll(modules);
+
+    for (final String module : allModules) {
+      if (checkModules && !JAVA_MODULES.contains(module)) {
+        errors.add("unknown module `" + module + "`, expected one of: " + JAVA_MODULES);
+      }
+    }
+
+    // packages might be provided by a repository, which can't be checked without reproto
+    if (repository) {
+      return errors;
+    }
+
+    final Set<String> allPackages = new LinkedHashSet<>(packages);
+    allPackages.addAll(targets);
+
+    for (final String p : allPackages) {
+      if (!hasPackage(p)) {
+        errors.add("package `" + p + "` not found in any of: " + paths);
+      }
+    }
+
+    return errors;
+  }
+
+  /**
+   * Check if the given package exists in any of the schema paths.
+   *
+   * <p>A package {@code a.b} is either defined in {@code a/b.reproto}, a versioned
+   * {@code a/b-<version>.reproto}, or is a directory containing other packages.
+   */
+  boolean hasPackage(final String name) {
+    final String[] parts = name.split("\\.");
+    final String last = parts[parts.length - 1];
+
+    for (final Path root : paths) {
+      Path parent = root;
+
+      for (int i = 0; i < parts.length - 1; i++) {
+        parent = parent.resolve(parts[i]);
+      }
+
+      if (Files.isDirectory(parent.resolve(last))) {
+        return true;
+      }
+
+      if (!Files.isDirectory(parent)) {
+        continue;
+      }
+
+      try (final Stream<Path> children = Files.list(parent)) {
+        final boolean found = children.map(c -> c.getFileName().toString()).anyMatch(c ->
+            c.equals(last + Fingerprint.SCHEMA_EXTENSION) ||
+                (c.startsWith(last + "-") && c.endsWith(Fingerprint.SCHEMA_EXTENSION)));
+
+        if (found) {
+          return true;
+        }
+      } catch (final IOException e) {
+        // treated as missing
+      }
+    }
+
+    return false;
+  }
+
+  private static List<String> list() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Line-based parser collecting the keys of well-known tables and the values of well-known
+   * arrays.
+   *
+   * <p>Tables are recognized both as {@code [packages]} sections and as inline tables like
+   * {@code packages = { "api.v1" = "*" }}. Lines which are not understood are skipped.
+   */
+  private static class Parser {
+    private static final List<String> MULTI_LINE_DELIMITERS = Arrays.asList("\"\"\"", "'''");
+
+    private final Path path;
+    private final List<String> lines;
+
+    private final Map<String, List<String>> values = new LinkedHashMap<>();
+    private boolean root = true;
+    /**
+     * Entries of the current table, or empty if keys in it are not of interest.
+     */
+    private Optional<List<String>> entries = Optional.empty();
+    private int line = 0;
+
+    Parser(final Path path, final List<String> lines) {
+      this.path = path;
+      this.lines = lines;
+    }
+
+    Map<String, List<String>> parse() {
+      while (line < lines.size()) {
+        final String current = stripComment(lines.get(line++)).trim();
+
+        if (current.isEmpty()) {
+          continue;
+        }
+
+        if (current.startsWith("[[")) {
+          root = false;
+          values.computeIfAbsent(key(current.substring(2, current.indexOf("]]")))[0],
+              k -> new ArrayList<>());
+          entries = Optional.empty();
+          continue;
+        }
+
+        if (current.startsWith("[")) {
+          root = false;
+          final String[] header = key(current.substring(1, current.lastIndexOf(']')));
+          final List<String> table = values.computeIfAbsent(header[0], k -> new ArrayList<>());
+
+          if (header.length == 1) {
+            entries = Optional.of(table);
+          } else {
+            // [modules.jackson] declares the entry `jackson` in `modules`
+            table.add(header[1]);
+            entries = Optional.empty();
+          }
+
+          continue;
+        }
+
+        final int eq = indexOfUnquoted(current, '=');
+
+        if (eq < 0) {
+          // not something the plugin needs to know about, reproto validates the manifest
+          continue;
+        }
+
+        final String[] key = key(current.substring(0, eq));
+        final String value = readValue(current.substring(eq + 1).trim());
+
+        if (!root) {
+          entries.ifPresent(e -> e.add(key[0]));
+          continue;
+        }
+
+        if (key.length > 1) {
+          // packages."api.v1" = "*" declares the entry `api.v1` in `packages`
+          values.computeIfAbsent(key[0], k -> new ArrayList<>()).add(key[1]);
+        } else if (value.startsWith("[")) {
+          values.put(key[0], array(value));
+        } else if (value.startsWith("{")) {
+          values.put(key[0], inlineTable(value));
+        } else {
+          values.put(key[0], Collections.singletonList(string(value)));
+        }
+      }
+
+      return values;
+    }
+
+    /**
+     * Read a value, which might be an array, inline table or string spanning multiple lines.
+     */
+    private String readValue(final String first) {
+      final StringBuilder value = new StringBuilder(first);
+
+      for (final String delimiter : MULTI_LINE_DELIMITERS) {
+        if (!first.startsWith(delimiter)) {
+          continue;
+        }
+
+        while (value.indexOf(delimiter, delimiter.length()) < 0) {
+          if (line >= lines.size()) {
+            throw error("unterminated string");
+          }
+
+          value.append('\n').append(lines.get(line++));
+        }
+
+        return value.toString();
+      }
+
+      while (depth(value) > 0) {
+        if (line >= lines.size()) {
+          throw error("unterminated value");
+        }
+
+        value.append(' ').append(stripComment(lines.get(line++)).trim());
+      }
+
+      return value.toString();
+    }
+
+    private List<String> array(final String value) {
+      final List<String> result = new ArrayList<>();
+
+      for (final String item : split(value.substring(1, value.lastIndexOf(']')))) {
+        result.add(string(item));
+      }
+
+      return result;
+    }
+
+    /**
+     * The keys of an inline table.
+     */
+    private List<String> inlineTable(final String value) {
+      final List<String> result = new ArrayList<>();
+
+      for (final String entry : split(value.substring(1, value.lastIndexOf('}')))) {
+        final int eq = indexOfUnquoted(entry, '=');
+
+        if (eq >= 0) {
+          result.add(key(entry.substring(0, eq))[0]);
+        }
+      }
+
+      return result;
+    }
+
+    /**
+     * Split the inner part of an array or inline table into its non-empty items.
+     */
+    private static List<String> split(final String inner) {
+      final List<String> items = new ArrayList<>();
+      int depth = 0;
+      boolean quoted = false;
+      int start = 0;
+
+      for (int i = 0; i <= inner.length(); i++) {
+        final char c = i < inner.length() ? inner.charAt(i) : ',';
+
+        if (c == '"') {
+          quoted = !quoted;
+        } else if (!quoted && (c == '[' || c == '{')) {
+          depth++;
+        } else if (!quoted && (c == ']' || c == '}')) {
+          depth--;
+        } else if (!quoted && depth == 0 && c == ',') {
+          final String item = inner.substring(start, i).trim();
+
+          if (!item.isEmpty()) {
+            items.add(item);
+          }
+
+          start = i + 1;
+        }
+      }
+
+      return items;
+    }
+
+    private static int indexOfUnquoted(final String value, final char needle) {
+      boolean quoted = false;
+
+      for (int i = 0; i < value.length(); i++) {
+        final char c = value.charAt(i);
+
+        if (c == '"') {
+          quoted = !quoted;
+        } else if (c == needle && !quoted) {
+          return i;
+        }
+      }
+
+      return -1;
+    }
+
+    private String[] key(final String key) {
+      final List<String> parts = new ArrayList<>();
+
+      for (final String part : key.trim().split("\\.(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)")) {
+        parts.add(string(part.trim()));
+      }
+
+      return parts.toArray(new String[0]);
+    }
+
+    private String string(final String value) {
+      if (value.length() >= 2 && (value.startsWith("\"") || value.startsWith("'"))) {
+        return value.substring(1, value.length() - 1);
+      }
+
+      return value;
+    }
+
+    private static int depth(final CharSequence value) {
+      int depth = 0;
+      boolean quoted = false;
+
+      for (int i = 0; i < value.length(); i++) {
+        final char c = value.charAt(i);
+
+        if (c == '"') {
+          quoted = !quoted;
+        } else if (!quoted && (c == '[' || c == '{')) {
+          depth++;
+        } else if (!quoted && (c == ']' || c == '}')) {
+          depth--;
+        }
+      }
+
+      return depth;
+    }
+
+    private static String stripComment(final String line) {
+      boolean quoted = false;
+
+      for (int i = 0; i < line.length(); i++) {
+        final char c = line.charAt(i);
+
+        if (c == '"') {
+          quoted = !quoted;
+        } else if (c == '#' && !quoted) {
+          return line.substring(0, i);
+        }
+      }
+
+      return line;
+    }
+
+    private IllegalArgumentException error(final String message) {
+      return new IllegalArgumentException(path + ":" + line + ": " + message);
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package se.tedro.maven.plugin.reproto;
+
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The platform the plugin is running on, used to pick which release archive to download.
+ */
+@Data
+public class Platform {
+  private final Optional<String> os;
+  private final Optional<String> arch;
+  /**
+   * If the platform uses musl rather than glibc, only relevant on Linux.
+   */
+  private final boolean musl;
+
+  /**
+   * The platform of the running JVM, which is only probed once.
+   */
+  public static Platform current() {
+    return Current.PLATFORM;
+  }
+
+  /**
+   * Suffix of release archives built for this platform, like {@code linux-aarch64-musl}.
+   *
+   * @return the suffix, or empty if no releases are built for this platform
+   */
+  public Optional<String> archiveSuffix() {
+    if (!os.isPresent() || !arch.isPresent()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(os.get() + "-" + arch.get() + (musl ? "-musl" : ""));
+  }
+
+  /**
+   * Suffixes of release archives which run on this platform, in order of preference.
+   *
+   * <p>Older releases were not built for musl, so the glibc build is tried after the musl one.
+   */
+  public List<String> archiveSuffixes() {
+    final List<String> suffixes = new ArrayList<>();
+
+    archiveSuffix().ifPresent(suffix -> {
+      suffixes.add(suffix);
+
+      if (musl) {
+        suffixes.add(os.get() + "-" + arch.get());
+      }
+    });
+
+    return suffixes;
+  }
+
+  public boolean isWindows() {
+    return os.map("win"::equals).orElse(false);
+  }
+
+  @Override
+  public String toString() {
+    return os.orElse("unknown") + "-" + arch.orElse("unknown") + (musl ? "-musl" : "");
+  }
+
+  static Platform detect(final String osName, final String osArch, final boolean musl) {
+    final Optional<String> os = resolveOs(osName);
+    return new Platform(os, resolveArch(osArch), musl && os.map("linux"::equals).orElse(false));
+  }
+
+  static Optional<String> resolveOs(final String osName) {
+    final String name = osName.toLowerCase(Locale.ROOT);
+
+    if (name.contains("linux")) {
+      return Optional.of("linux");
+    }
+
+    if (name.contains("mac")) {
+      return Optional.of("osx");
+    }
+
+    if (name.contains("windows")) {
+      return Optional.of("win");
+    }
+
+    return Optional.empty();
+  }
+
+  static Optional<String> resolveArch(final String osArch) {
+    switch (osArch.toLowerCase(Locale.ROOT)) {
+      case "x86_64":
+      case "amd64":
+        return Optional.of("x86_64");
+      case "x86_32":
+      case "x86":
+      case "i386":
+      case "i486":
+      case "i586":
+      case "i686":
+        return Optional.of("x86_32");
+      case "aarch64":
+      case "arm64":
+        return Optional.of("aarch64");
+      default:
+        return Optional.empty();
+    }
+  }
+
+  /**
+   * Probe if the JVM runs on musl by looking for its dynamic loader among the mapped files.
+   *
+   * <p>The loader being installed is not enough, since glibc distributions can have musl
+   * installed next to glibc.
+   *
+   * @param maps memory mappings of the JVM, {@code /proc/self/maps}
+   */
+  static boolean probeMusl(final Path maps) {
+    if (!Files.isRegularFile(maps)) {
+      return false;
+    }
+
+    try (final Stream<String> lines = Files.lines(maps, StandardCharsets.UTF_8)) {
+      return lines.anyMatch(line -> line.contains("/ld-musl-"));
+    } catch (final IOException | UncheckedIOException e) {
+      return false;
+    }
+  }
+
+  private static class Current {
+    private static final Platform PLATFORM = detect(System.getProperty("os.name", ""),
+        System.getProperty("os.arch", ""), probeMusl(Paths.get("/proc/self/maps")));
+  }
+}
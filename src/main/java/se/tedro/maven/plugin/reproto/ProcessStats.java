@@ -0,0 +1,113 @@
+package se.tedro.maven.plugin.reproto;
+
+import lombok.Data;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Samples resource usage of a running child process.
+ *
+ * <p>The plugin targets Java 8 which has no {@code ProcessHandle}, so usage is read from
+ * {@code /proc} where available. Samples have to be taken while the process is running, since
+ * its entry is gone once it has been reaped.
+ */
+public class ProcessStats {
+  /**
+   * USER_HZ, which is 100 on all supported Linux platforms.
+   */
+  private static final long CLOCK_TICKS_PER_SECOND = 100L;
+
+  private final Optional<Path> proc;
+
+  private volatile long cpuTimeMs = -1L;
+  private volatile long peakRssKb = -1L;
+
+  private ProcessStats(final Optional<Path> proc) {
+    this.proc = proc;
+  }
+
+  public static ProcessStats of(final Process process) {
+    return new ProcessStats(pid(process)
+        .map(pid -> Paths.get("/proc", Long.toString(pid)))
+        .filter(Files::isDirectory));
+  }
+
+  /**
+   * Take a sample, silently ignoring processes which have already exited.
+   */
+  public void sample() {
+    if (!proc.isPresent()) {
+      return;
+    }
+
+    try {
+      sampleStatus(proc.get().resolve("status"));
+      sampleStat(proc.get().resolve("stat"));
+    } catch (final IOException | RuntimeException e) {
+      // process exited between samples
+    }
+  }
+
+  public Usage usage() {
+    return new Usage(optional(cpuTimeMs), optional(peakRssKb));
+  }
+
+  private void sampleStatus(final Path status) throws IOException {
+    final List<String> lines = Files.readAllLines(status, StandardCharsets.UTF_8);
+
+    for (final String line : lines) {
+      if (line.startsWith("VmHWM:")) {
+        final String value = line.substring("VmHWM:".length()).trim().split("\\s+")[0];
+        peakRssKb = Math.max(peakRssKb, Long.parseLong(value));
+      }
+    }
+  }
+
+  private void sampleStat(final Path stat) throws IOException {
+    final String content = new String(Files.readAllBytes(stat), StandardCharsets.UTF_8);
+
+    // the command name is in parenthesis and can contain spaces, so skip it entirely
+    final String[] fields = content.substring(content.lastIndexOf(')') + 2).split(" ");
+
+    // utime and stime are the 14th and 15th fields, counting from the pid
+    final long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+    cpuTimeMs = Math.max(cpuTimeMs, ticks * 1000L / CLOCK_TICKS_PER_SECOND);
+  }
+
+  private static Optional<Long> optional(final long value) {
+    return value < 0 ? Optional.empty() : Optional.of(value);
+  }
+
+  private static Optional<Long> pid(final Process process) {
+    try {
+      // Java 9+
+      final Method method = Process.class.getMethod("pid");
+      return Optional.of((Long) method.invoke(process));
+    } catch (final ReflectiveOperationException e) {
+      // fall through
+    }
+
+    try {
+      // java.lang.UNIXProcess on Java 8
+      final Field field = process.getClass().getDeclaredField("pid");
+      field.setAccessible(true);
+      return Optional.of((long) field.getInt(process));
+    } catch (final ReflectiveOperationException | RuntimeException e) {
+      return Optional.empty();
+    }
+  }
+
+  @Data
+  public static class Usage {
+    private final Optional<Long> cpuTimeMs;
+    private final Optional<Long> peakRssKb;
+  }
+}
@@ -1,20 +1,33 @@
 package se.tedro.maven.plugin.reproto;
 
+import lombok.Data;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.apache.maven.plugin.logging.Log;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
-import org.codehaus.plexus.util.cli.Commandline;
 import org.codehaus.plexus.util.cli.StreamConsumer;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.StringJoiner;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
+@Getter
 @RequiredArgsConstructor
 public class Reproto {
+  public static final long POLL_INTERVAL_MS = 100L;
+
+  private static final Set<String> LOCATION_ARGUMENTS =
+      new HashSet<>(Arrays.asList("--manifest-path", "--path", "--out"));
+
   private final Path executable;
   private final Path out;
   private final Path manifest;
@@ -25,34 +38,56 @@ public class Reproto {
   private final Optional<String> packagePrefix;
   private final Optional<Boolean> debug;
 
-  public void execute(final Log log) throws Exception {
-    final LineConsumer output = new LineConsumer();
-    final LineConsumer error = new LineConsumer();
-
-    final Commandline command = new Commandline();
+  private final Optional<Duration> timeout;
+  private final Optional<Integer> niceLevel;
+  private final Optional<Semaphore> permits;
+  private final BooleanSupplier cancelled;
+  private final Listener listener;
+  private final ExecutionBackend backend;
 
-    command.setExecutable(executable.toString());
-    final List<String> arguments = arguments();
-    command.addArguments(arguments.toArray(new String[0]));
+  public Result execute(final Log log) throws Exception {
+    final Optional<Semaphore> permits = this.permits;
 
-    final StringJoiner joiner = new StringJoiner(" ", "", "");
-    joiner.add(executable.toString());
-    arguments.forEach(joiner::add);
+    if (permits.isPresent()) {
+      acquire(permits.get());
+    }
 
-    log.info("Executing: " + joiner.toString());
+    try {
+      return backend.execute(this, log);
+    } finally {
+      permits.ifPresent(Semaphore::release);
+    }
+  }
 
-    final int status = CommandLineUtils.executeCommandLine(command, null, output, error);
+  /**
+   * Fail if the build has been cancelled, or if the execution which started at the given time
+   * ({@link System#nanoTime()}) has timed out. Called regularly by backends while waiting.
+   */
+  void checkInterrupted(final long start) {
+    checkCancelled();
 
-    for (final String line : output.lines) {
-      log.info("reproto: " + line);
+    if (timeout.isPresent() && System.nanoTime() - (start + timeout.get().toNanos()) > 0) {
+      throw new RuntimeException(
+          executable + ": timed out after " + timeout.get().getSeconds() + "s");
     }
+  }
+
+  static long elapsedMs(final long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
 
-    for (final String line : error.lines) {
-      log.error("reproto: " + line);
+  /**
+   * Fail if the build has been cancelled.
+   */
+  void checkCancelled() {
+    if (cancelled.getAsBoolean()) {
+      throw new RuntimeException(executable + ": cancelled since the build is failing");
     }
+  }
 
-    if (status != 0) {
-      throw new RuntimeException(executable + ": exited with non-zero status (" + status + ")");
+  private void acquire(final Semaphore permits) throws InterruptedException {
+    while (!permits.tryAcquire(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+      checkCancelled();
     }
   }
 
@@ -96,6 +131,38 @@ public class Reproto {
     return result;
   }
 
+  /**
+   * Arguments with all locations left out, used to identify equivalent executions.
+   *
+   * <p>The content of the manifest and of the schema paths is expected to be identified
+   * separately, see {@link Fingerprint}.
+   */
+  public List<String> normalizedArguments() {
+    final List<String> result = new ArrayList<>();
+    final Iterator<String> it = arguments().iterator();
+
+    while (it.hasNext()) {
+      final String argument = it.next();
+
+      if (LOCATION_ARGUMENTS.contains(argument)) {
+        it.next();
+        continue;
+      }
+
+      result.add(argument);
+    }
+
+    return result;
+  }
+
+  /**
+   * The same invocation, generating into the given directory instead.
+   */
+  public Reproto withOut(final Path out) {
+    return new Reproto(executable, out, manifest, paths, modules, targets, packagePrefix, debug,
+        timeout, niceLevel, permits, cancelled, listener, backend);
+  }
+
   @RequiredArgsConstructor
   public static class Builder {
     @NonNull
@@ -110,6 +177,12 @@ public class Reproto {
     private final List<String> targets = new ArrayList<>();
     private Optional<String> packagePrefix = Optional.empty();
     private Optional<Boolean> debug = Optional.empty();
+    private Optional<Duration> timeout = Optional.empty();
+    private Optional<Integer> niceLevel = Optional.empty();
+    private Optional<Semaphore> permits = Optional.empty();
+    private BooleanSupplier cancelled = () -> false;
+    private Listener listener = Listener.NONE;
+    private ExecutionBackend backend = ForkingBackend.INSTANCE;
 
     public Builder path(final Path path) {
       this.paths.add(path);
@@ -136,9 +209,100 @@ public class Reproto {
       return this;
     }
 
+    /**
+     * Maximum time the process is allowed to run for.
+     */
+    public Builder timeout(final Duration timeout) {
+      this.timeout = Optional.of(timeout);
+      return this;
+    }
+
+    /**
+     * Run the process with the given nice level.
+     */
+    public Builder niceLevel(final int niceLevel) {
+      this.niceLevel = Optional.of(niceLevel);
+      return this;
+    }
+
+    /**
+     * Permits which have to be acquired before the process is started, limiting the number of
+     * concurrent processes.
+     */
+    public Builder permits(final Semaphore permits) {
+      this.permits = Optional.of(permits);
+      return this;
+    }
+
+    /**
+     * Condition checked while waiting, causing the process to be killed when it becomes true.
+     */
+    public Builder cancelled(final BooleanSupplier cancelled) {
+      this.cancelled = cancelled;
+      return this;
+    }
+
+    /**
+     * Listener notified when the process is spawned and exits.
+     */
+    public Builder listener(final Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Backend which runs reproto, forking a process by default.
+     */
+    public Builder backend(final ExecutionBackend backend) {
+      this.backend = backend;
+      return this;
+    }
+
     public Reproto build() {
-      return new Reproto(executable, out, manifest, new ArrayList<>(paths), new ArrayList<>(modules),
-          new ArrayList<>(targets), packagePrefix, debug);
+      return new Reproto(executable, out, manifest, new ArrayList<>(paths),
+          new ArrayList<>(modules), new ArrayList<>(targets), packagePrefix, debug, timeout,
+          niceLevel, permits, cancelled, listener, backend);
+    }
+  }
+
+  /**
+   * Notified when reproto starts and finishes. Backends which don't fork a process report the
+   * command they would have run.
+   */
+  public interface Listener {
+    Listener NONE = new Listener() {
+      @Override
+      public void processSpawn(final List<String> command) {
+      }
+
+      @Override
+      public void processExit(
+          final int status, final long durationMs, final ProcessStats.Usage usage
+      ) {
+      }
+    };
+
+    void processSpawn(List<String> command);
+
+    /**
+     * Called when the process exits, with a status of {@code -1} if it was killed.
+     */
+    void processExit(int status, long durationMs, ProcessStats.Usage usage);
+  }
+
+  @Data
+  public static class Result {
+    private final long durationMs;
+    private final ProcessStats.Usage usage;
+
+    @Override
+    public String toString() {
+      final StringBuilder builder = new StringBuilder();
+      builder.append("finished in ").append(durationMs).append("ms");
+      usage.getCpuTimeMs().ifPresent(cpu -> builder.append(", cpu: ").append(cpu).append("ms"));
+      usage.getPeakRssKb()
+          .ifPresent(rss -> builder.append(", peak rss: ").append(rss).append("kB"));
+      return builder.toString();
     }
   }
 
@@ -146,8 +310,25 @@ public class Reproto {
     private final List<String> lines = new ArrayList<String>();
 
     @Override
-    public void consumeLine(final String line) {
+    public synchronized void consumeLine(final String line) {
       lines.add(line);
     }
+
+    public synchronized List<String> getLines() {
+      return new ArrayList<>(lines);
+    }
+
+    /**
+     * Log these lines as regular output, followed by the given lines as errors.
+     */
+    public void log(final Log log, final LineConsumer error) {
+      for (final String line : getLines()) {
+        log.info("reproto: " + line);
+      }
+
+      for (final String line : error.getLines()) {
+        log.error("reproto: " + line);
+      }
+    }
   }
 }
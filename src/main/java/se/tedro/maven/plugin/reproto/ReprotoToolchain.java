@@ -0,0 +1,36 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.apache.maven.toolchain.DefaultToolchain;
+import org.apache.maven.toolchain.model.ToolchainModel;
+import org.codehaus.plexus.logging.Logger;
+
+import java.nio.file.Path;
+
+/**
+ * A reproto executable registered as a toolchain of type {@code reproto} in
+ * {@code toolchains.xml}.
+ */
+public class ReprotoToolchain extends DefaultToolchain {
+  public static final String TYPE = "reproto";
+
+  private final Path executable;
+
+  ReprotoToolchain(final ToolchainModel model, final Path executable, final Logger logger) {
+    super(model, TYPE, logger);
+    this.executable = executable;
+  }
+
+  @Override
+  public String findTool(final String toolName) {
+    if (!CompileReprotoMojo.EXECUTABLE.equals(toolName)) {
+      return null;
+    }
+
+    return executable.toString();
+  }
+
+  @Override
+  public String toString() {
+    return TYPE + "[" + executable + "]";
+  }
+}
@@ -0,0 +1,83 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.apache.maven.toolchain.MisconfiguredToolchainException;
+import org.apache.maven.toolchain.RequirementMatcherFactory;
+import org.apache.maven.toolchain.ToolchainFactory;
+import org.apache.maven.toolchain.ToolchainPrivate;
+import org.apache.maven.toolchain.model.ToolchainModel;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Creates reproto toolchains, configured like this in {@code toolchains.xml}:
+ *
+ * <pre>{@code
+ * <toolchain>
+ *   <type>reproto</type>
+ *   <provides>
+ *     <version>0.3.36</version>
+ *   </provides>
+ *   <configuration>
+ *     <executable>/opt/reproto/bin/reproto</executable>
+ *   </configuration>
+ * </toolchain>
+ * }</pre>
+ *
+ * <p>Registered in {@code META-INF/plexus/components.xml}, which requires the plugin to be
+ * loaded as a build extension.
+ */
+public class ReprotoToolchainFactory implements ToolchainFactory {
+  public static final String EXECUTABLE = "executable";
+
+  private Logger logger;
+
+  @Override
+  public ToolchainPrivate createToolchain(final ToolchainModel model)
+      throws MisconfiguredToolchainException {
+    if (model == null) {
+      return null;
+    }
+
+    final Xpp3Dom configuration = (Xpp3Dom) model.getConfiguration();
+    final Xpp3Dom executable = configuration == null ? null : configuration.getChild(EXECUTABLE);
+
+    if (executable == null || executable.getValue() == null) {
+      throw new MisconfiguredToolchainException(
+          "reproto toolchain is missing the `" + EXECUTABLE + "` configuration");
+    }
+
+    final Path path = Paths.get(executable.getValue().trim());
+
+    if (!Files.isExecutable(path)) {
+      throw new MisconfiguredToolchainException(
+          "reproto toolchain executable is not an executable: " + path);
+    }
+
+    final ReprotoToolchain toolchain = new ReprotoToolchain(model, path, logger);
+    final Properties provides = (Properties) model.getProvides();
+
+    if (provides != null) {
+      for (final String key : provides.stringPropertyNames()) {
+        final String value = provides.getProperty(key);
+
+        if ("version".equals(key)) {
+          toolchain.addProvideToken(key, RequirementMatcherFactory.createVersionMatcher(value));
+        } else {
+          toolchain.addProvideToken(key, RequirementMatcherFactory.createExactMatcher(value));
+        }
+      }
+    }
+
+    return toolchain;
+  }
+
+  @Override
+  public ToolchainPrivate createDefaultToolchain() {
+    return null;
+  }
+}
@@ -0,0 +1,81 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.apache.maven.execution.MavenSession;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * State which is shared between all executions of the plugin within a single build session.
+ */
+public class SessionScope {
+  private static final Map<Object, SessionScope> SCOPES =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final ConcurrentMap<Object, Object> values = new ConcurrentHashMap<>();
+
+  /**
+   * Get the scope associated with the given session.
+   *
+   * <p>Parallel builds hand each project a copy of the session, so the scope is keyed on the
+   * execution request which is shared between all of them.
+   */
+  public static SessionScope of(final MavenSession session) {
+    return SCOPES.computeIfAbsent(session.getRequest(), request -> new SessionScope());
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T computeIfAbsent(final Object key, final Function<Object, T> supplier) {
+    return (T) values.computeIfAbsent(key, supplier);
+  }
+
+  /**
+   * Get the value for the given key, computing it at most once at a time.
+   *
+   * <p>Unlike {@link #computeIfAbsent(Object, Function)} the value is computed outside of the map,
+   * so slow computations don't block access to unrelated keys. Concurrent callers for the same key
+   * wait for the first one and share its result. Failures are not kept, the next caller retries.
+   */
+  @SuppressWarnings("unchecked")
+  public <T, E extends Exception> T memoize(final Object key, final Computation<T, E> computation)
+      throws E, InterruptedException {
+    final CompletableFuture<T> created = new CompletableFuture<>();
+    final CompletableFuture<T> existing = computeIfAbsent(key, k -> created);
+
+    if (existing == created) {
+      try {
+        created.complete(computation.compute());
+      } catch (final Throwable e) {
+        values.remove(key, created);
+        created.completeExceptionally(e);
+      }
+    }
+
+    try {
+      return existing.get();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw (E) cause;
+    }
+  }
+
+  @FunctionalInterface
+  public interface Computation<T, E extends Exception> {
+    T compute() throws E, InterruptedException;
+  }
+}
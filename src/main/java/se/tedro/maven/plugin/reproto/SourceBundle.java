@@ -0,0 +1,186 @@
+package se.tedro.maven.plugin.reproto;
+
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A jar containing all generated sources.
+ */
+@Data
+public class SourceBundle {
+  public static final String CLASSIFIER = "reproto-sources";
+
+  /**
+   * Fixed modification time for all entries, so that identical sources produce identical bundles.
+   */
+  private static final long ENTRY_TIME = 315532800000L;
+
+  private final Path path;
+
+  /**
+   * Package every file under the given directory into this bundle.
+   *
+   * @return the number of packaged files
+   */
+  public int write(final Path directory) throws IOException {
+    final List<Path> files = list(directory);
+
+    Files.createDirectories(path.toAbsolutePath().getParent());
+
+    try (final JarOutputStream jar = new JarOutputStream(Files.newOutputStream(path))) {
+      for (final Path file : files) {
+        final JarEntry entry = new JarEntry(entryName(directory.relativize(file)));
+        entry.setTime(ENTRY_TIME);
+        jar.putNextEntry(entry);
+        Files.copy(file, jar);
+        jar.closeEntry();
+      }
+    }
+
+    return files.size();
+  }
+
+  /**
+   * All entries in this bundle, empty if it doesn't exist.
+   *
+   * <p>Only the central directory of the bundle is read, not the content of the entries.
+   */
+  public Map<String, Checksum> entries() throws IOException {
+    final Map<String, Checksum> entries = new HashMap<>();
+
+    if (!Files.isRegularFile(path)) {
+      return entries;
+    }
+
+    try (final JarFile jar = new JarFile(path.toFile())) {
+      for (final JarEntry entry : Collections.list(jar.entries())) {
+        if (!entry.isDirectory()) {
+          entries.put(entry.getName(), Checksum.of(entry));
+        }
+      }
+    }
+
+    return entries;
+  }
+
+  /**
+   * Unpack this bundle into the given directory.
+   *
+   * <p>Only files which differ from the previous bundle are written, leaving unchanged files
+   * untouched for incremental compilation. Files are compared by the size and checksum recorded in
+   * the bundles, so unchanged files are neither decompressed nor read. Files from the previous
+   * bundle which are not part of this one are removed, other files in the directory are left alone
+   * since they might belong to another execution.
+   *
+   * @param previous entries of the bundle which was previously unpacked, see {@link #entries()}
+   * @return the number of written or removed files
+   */
+  public int extract(final Path directory, final Map<String, Checksum> previous)
+      throws IOException {
+    final Path root = directory.toAbsolutePath().normalize();
+    final Set<String> seen = new HashSet<>();
+    int changed = 0;
+
+    try (final JarFile jar = new JarFile(path.toFile())) {
+      for (final JarEntry entry : Collections.list(jar.entries())) {
+        if (entry.isDirectory()) {
+          continue;
+        }
+
+        final Path target = resolve(root, entry.getName());
+        seen.add(entry.getName());
+
+        final Checksum checksum = Checksum.of(entry);
+
+        // a missing or resized file has been touched since it was unpacked
+        if (checksum.equals(previous.get(entry.getName())) && Files.isRegularFile(target)
+            && Files.size(target) == checksum.getSize()) {
+          continue;
+        }
+
+        Files.createDirectories(target.getParent());
+
+        try (final InputStream in = jar.getInputStream(entry)) {
+          Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        changed += 1;
+      }
+    }
+
+    for (final String name : previous.keySet()) {
+      if (!seen.contains(name) && Files.deleteIfExists(resolve(root, name))) {
+        changed += 1;
+      }
+    }
+
+    return changed;
+  }
+
+  /**
+   * Resolve an entry, refusing entries which would end up outside of the directory.
+   */
+  private Path resolve(final Path root, final String name) throws IOException {
+    final Path target = root.resolve(name).normalize();
+
+    if (!target.startsWith(root) || target.equals(root)) {
+      throw new IOException(path + ": entry outside of the target directory: " + name);
+    }
+
+    return target;
+  }
+
+  static List<Path> list(final Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return new ArrayList<>();
+    }
+
+    try (final Stream<Path> stream = Files.walk(directory)) {
+      return stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+  }
+
+  private static String entryName(final Path relative) {
+    final StringBuilder builder = new StringBuilder();
+
+    for (final Path part : relative) {
+      if (builder.length() > 0) {
+        builder.append('/');
+      }
+
+      builder.append(part.toString());
+    }
+
+    return builder.toString();
+    }
+
+  /**
+   * Size and CRC-32 of an entry, as recorded in the bundle.
+   */
+  @Data
+  public static class Checksum {
+    private final long size;
+    private final long crc;
+
+    static Checksum of(final JarEntry entry) {
+      return new Checksum(entry.getSize(), entry.getCrc());
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package se.tedro.maven.plugin.reproto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Java modules to generate a single target package with, configured as:
+ *
+ * <pre>{@code
+ * <targetFeatures>
+ *   <targetFeature>
+ *     <target>api.v1</target>
+ *     <modules>
+ *       <module>jackson</module>
+ *     </modules>
+ *   </targetFeature>
+ * </targetFeatures>
+ * }</pre>
+ */
+@Data
+public class TargetFeature {
+  private String target;
+  private List<String> modules = new ArrayList<>();
+
+  /**
+   * Group targets by the modules they are generated with, so that every group can be generated by
+   * a single reproto invocation.
+   *
+   * <p>Targets without features use the default modules. Modules are not checked here, see
+   * {@link Manifest#validate(Set, List, boolean)}.
+   *
+   * <p>Reproto builds the packages of the manifest in every invocation, and there is no way to
+   * build them in only one of several. So features can't be combined with manifest packages,
+   * which have to be configured as targets instead.
+   *
+   * @param targets targets without features
+   * @param modules default modules
+   * @param features targets with features
+   * @param manifestPackages packages declared in the manifest
+   * @return targets by module set, in a stable order
+   */
+  public static Map<Set<String>, Set<String>> group(
+      final Collection<String> targets, final Collection<String> modules,
+      final List<TargetFeature> features, final Collection<String> manifestPackages
+  ) {
+    final Map<Set<String>, Set<String>> groups = new LinkedHashMap<>();
+    final Set<String> featured = new LinkedHashSet<>();
+
+    for (final TargetFeature feature : features) {
+      if (feature.getTarget() == null) {
+        throw new IllegalArgumentException("targetFeature: missing `target`");
+      }
+
+      if (!featured.add(feature.getTarget())) {
+        throw new IllegalArgumentException(
+            "targetFeature: `" + feature.getTarget() + "` is configured more than once");
+      }
+    }
+
+    for (final String target : featured) {
+      if (manifestPackages.contains(target)) {
+        throw new IllegalArgumentException("targetFeature: `" + target
+            + "` is also a package in the manifest, which is built with the default modules");
+      }
+    }
+
+    if (!features.isEmpty() && !manifestPackages.isEmpty()) {
+      throw new IllegalArgumentException("targetFeatures: can't be used with packages in the "
+          + "manifest, which would be built by every invocation, configure them as targets "
+          + "instead: " + String.join(", ", manifestPackages));
+    }
+
+    final Set<String> plain = new LinkedHashSet<>(targets);
+    plain.removeAll(featured);
+
+    // an invocation without targets has nothing to build
+    if (!plain.isEmpty() || features.isEmpty()) {
+      groups.put(toModules(modules), plain);
+    }
+
+    for (final TargetFeature feature : features) {
+      groups.computeIfAbsent(toModules(feature.getModules()), k -> new LinkedHashSet<>())
+          .add(feature.getTarget());
+    }
+
+    return groups;
+  }
+
+  /**
+   * Modules in a canonical order, so that the same modules always form the same group.
+   */
+  private static Set<String> toModules(final Collection<String> ids) {
+    return new TreeSet<>(ids);
+  }
+}
@@ -0,0 +1,67 @@
+package se.tedro.maven.plugin.reproto.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Difference between the API of two generations.
+ */
+@Data
+public class ApiDiff {
+  /**
+   * Types which were added.
+   */
+  private final List<String> added;
+  /**
+   * Types which were removed.
+   */
+  private final List<String> removed;
+  /**
+   * Types whose fields were changed, by type name.
+   */
+  private final Map<String, TypeChange> changed;
+
+  @JsonIgnore
+  public boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+  }
+
+  @Data
+  public static class TypeChange {
+    private final List<String> added;
+    private final List<String> removed;
+    /**
+     * Fields whose type changed, as {@code <before> -> <after>}.
+     */
+    private final Map<String, String> changed;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+      return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    static TypeChange of(final Map<String, String> before, final Map<String, String> after) {
+      final List<String> added = new ArrayList<>();
+      final List<String> removed = new ArrayList<>();
+      final Map<String, String> changed = new TreeMap<>();
+
+      after.forEach((field, type) -> {
+        final String previous = before.get(field);
+
+        if (previous == null) {
+          added.add(field);
+        } else if (!previous.equals(type)) {
+          changed.put(field, previous + " -> " + type);
+        }
+      });
+
+      before.keySet().stream().filter(field -> !after.containsKey(field)).forEach(removed::add);
+      return new TypeChange(added, removed, changed);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package se.tedro.maven.plugin.reproto.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import se.tedro.maven.plugin.reproto.AtomicFiles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Impact of a generation on the API, written for build orchestration to consume.
+ *
+ * <p>Downstream modules only need to be rebuilt when the hash of a package they consume differs
+ * from the previous build.
+ */
+@Data
+public class ApiReport {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  /**
+   * Hash of the whole generated API.
+   */
+  private final String abiHash;
+  /**
+   * Hash of the generated API by package.
+   */
+  private final Map<String, String> packages;
+  /**
+   * Hash of the API of the previous generation, {@code null} if there was none.
+   */
+  private final String previousAbiHash;
+  /**
+   * Changes since the previous generation, {@code null} if there was none.
+   */
+  private final ApiDiff diff;
+
+  public static ApiReport of(final ApiSnapshot current, final Optional<ApiSnapshot> previous) {
+    return new ApiReport(current.abiHash(), current.packageHashes(),
+        previous.map(ApiSnapshot::abiHash).orElse(null),
+        previous.map(current::diff).orElse(null));
+  }
+
+  public void write(final Path path) throws IOException {
+    Files.createDirectories(path.toAbsolutePath().getParent());
+
+    // consumers might read the report while it is being written
+    AtomicFiles.write(path, out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, this));
+  }
+}
@@ -0,0 +1,245 @@
+package se.tedro.maven.plugin.reproto.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Extracts the types and fields declared in generated java sources.
+ *
+ * <p>This is not a java parser. It only understands declarations as they are generated by reproto,
+ * which is enough to tell when the API of the generated code changes.
+ */
+public class ApiScanner {
+  private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*$");
+  private static final Pattern TYPE = Pattern.compile("\\b(class|interface|enum)\\s+(\\w+)");
+  private static final Pattern ANNOTATION = Pattern.compile("@[\\w.]+(\\s*\\([^)]*\\))?");
+  private static final Pattern IDENTIFIER = Pattern.compile("^\\s*(\\w+)");
+  private static final Pattern IMPORT = Pattern.compile("^\\s*import\\s");
+
+  private static final Set<String> MODIFIERS = Stream.of("public", "protected", "private",
+      "final", "transient", "volatile").collect(Collectors.toSet());
+
+  /**
+   * Scan all java files in the given directory.
+   */
+  public static ApiSnapshot scan(final Path directory) throws IOException {
+    final Map<String, ApiSnapshot.Type> types = new TreeMap<>();
+
+    if (!Files.isDirectory(directory)) {
+      return new ApiSnapshot(types);
+    }
+
+    final List<Path> files;
+
+    try (final Stream<Path> stream = Files.walk(directory)) {
+      files = stream
+          .filter(Files::isRegularFile)
+          .filter(p -> p.getFileName().toString().endsWith(".java"))
+          .collect(Collectors.toList());
+    }
+
+    for (final Path file : files) {
+      types.putAll(scan(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)));
+    }
+
+    return new ApiSnapshot(types);
+  }
+
+  /**
+   * Scan a single compilation unit.
+   *
+   * @return every declared type, by fully qualified type name
+   */
+  public static Map<String, ApiSnapshot.Type> scan(final String source) {
+    final Map<String, ApiSnapshot.Type> types = new TreeMap<>();
+    final Deque<Frame> frames = new ArrayDeque<>();
+    final StringBuilder statement = new StringBuilder();
+
+    String packageName = "";
+
+    for (final char c : stripLiterals(source).toCharArray()) {
+      switch (c) {
+        case '{':
+          final Matcher type = TYPE.matcher(statement);
+          final Frame parent = frames.peek();
+
+          if (type.find() && (parent == null || parent.isType())) {
+            final String outer = parent == null ? qualify(packageName) : parent.name + ".";
+            final Frame frame = new Frame(outer + type.group(2), "enum".equals(type.group(1)));
+            types.put(frame.name, new ApiSnapshot.Type(packageName, new TreeMap<>()));
+            frames.push(frame);
+          } else {
+            frames.push(new Frame(null, false));
+          }
+
+          statement.setLength(0);
+          break;
+        case '}':
+          final Frame closed = frames.pop();
+
+          if (closed.isEnum() && !closed.seenStatement) {
+            enumConstants(types.get(closed.name).getFields(), statement.toString());
+          }
+
+          statement.setLength(0);
+          break;
+        case ';':
+          final Frame current = frames.peek();
+
+          if (current == null) {
+            final Matcher p = PACKAGE.matcher(statement);
+
+            if (p.find()) {
+              packageName = p.group(1);
+            }
+          } else if (current.isType()) {
+            if (current.isEnum() && !current.seenStatement) {
+              enumConstants(types.get(current.name).getFields(), statement.toString());
+            } else {
+              field(types.get(current.name).getFields(), statement.toString());
+            }
+
+            current.seenStatement = true;
+          }
+
+          statement.setLength(0);
+          break;
+        default:
+          statement.append(c);
+          break;
+      }
+    }
+
+    return types;
+  }
+
+  private static String qualify(final String packageName) {
+    return packageName.isEmpty() ? "" : packageName + ".";
+  }
+
+  private static void field(final Map<String, String> fields, final String statement) {
+    String declaration = ANNOTATION.matcher(statement).replaceAll(" ");
+
+    final int assignment = declaration.indexOf('=');
+
+    if (assignment >= 0) {
+      declaration = declaration.substring(0, assignment);
+    }
+
+    // methods without a body, and anything else which isn't a field
+    if (declaration.contains("(") || IMPORT.matcher(declaration).find()) {
+      return;
+    }
+
+    final List<String> tokens = new ArrayList<>();
+
+    for (final String token : declaration.trim().split("\\s+")) {
+      if (token.equals("static")) {
+        return;
+      }
+
+      if (!token.isEmpty() && !MODIFIERS.contains(token)) {
+        tokens.add(token);
+      }
+    }
+
+    if (tokens.size() < 2) {
+      return;
+    }
+
+    final String name = tokens.remove(tokens.size() - 1);
+    fields.put(name, String.join(" ", tokens).replaceAll("\\s*,\\s*", ", "));
+  }
+
+  private static void enumConstants(final Map<String, String> fields, final String statement) {
+    int depth = 0;
+    int start = 0;
+    final String constants = statement + ",";
+
+    for (int i = 0; i < constants.length(); i++) {
+      final char c = constants.charAt(i);
+
+      if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        final String constant = ANNOTATION.matcher(constants.substring(start, i)).replaceAll(" ");
+        final Matcher m = IDENTIFIER.matcher(constant);
+
+        if (m.find()) {
+          fields.put(m.group(1), "enum constant");
+        }
+
+        start = i + 1;
+      }
+    }
+  }
+
+  /**
+   * Remove comments, and the content of string and character literals.
+   */
+  static String stripLiterals(final String source) {
+    final StringBuilder result = new StringBuilder(source.length());
+    int i = 0;
+
+    while (i < source.length()) {
+      final char c = source.charAt(i);
+
+      if (c == '/' && source.startsWith("//", i)) {
+        final int end = source.indexOf('\n', i);
+        i = end < 0 ? source.length() : end;
+      } else if (c == '/' && source.startsWith("/*", i)) {
+        final int end = source.indexOf("*/", i + 2);
+        i = end < 0 ? source.length() : end + 2;
+        result.append(' ');
+      } else if (c == '"' || c == '\'') {
+        int end = i + 1;
+
+        while (end < source.length() && source.charAt(end) != c) {
+          end += source.charAt(end) == '\\' ? 2 : 1;
+        }
+
+        result.append(c).append(c);
+        i = end + 1;
+      } else {
+        result.append(c);
+        i++;
+      }
+    }
+
+    return result.toString();
+  }
+
+  private static class Frame {
+    private final String name;
+    private final boolean isEnum;
+    private boolean seenStatement = false;
+
+    Frame(final String name, final boolean isEnum) {
+      this.name = name;
+      this.isEnum = isEnum;
+    }
+
+    boolean isType() {
+      return name != null;
+    }
+
+    boolean isEnum() {
+      return isEnum;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package se.tedro.maven.plugin.reproto.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import se.tedro.maven.plugin.reproto.AtomicFiles;
+import se.tedro.maven.plugin.reproto.Fingerprint;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * The API of a single generation: every generated type and its fields.
+ *
+ * <p>Hashes only cover the API, so they stay the same when the generated code changes in ways
+ * that consumers can't observe, like formatting or method bodies.
+ */
+@Data
+public class ApiSnapshot {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final Map<String, Type> types;
+
+  /**
+   * Hash of the whole API.
+   */
+  public String abiHash() {
+    final MessageDigest digest = Fingerprint.newDigest();
+    types.forEach((name, type) -> update(digest, name, type));
+    return Fingerprint.hex(digest.digest());
+  }
+
+  /**
+   * Hash of the API of every package.
+   */
+  public Map<String, String> packageHashes() {
+    final Map<String, MessageDigest> digests = new TreeMap<>();
+
+    types.forEach((name, type) -> {
+      final String packageName = type.getPackageName();
+      update(digests.computeIfAbsent(packageName, p -> Fingerprint.newDigest()), name, type);
+    });
+
+    final Map<String, String> hashes = new TreeMap<>();
+    digests.forEach((p, digest) -> hashes.put(p, Fingerprint.hex(digest.digest())));
+    return hashes;
+  }
+
+  /**
+   * Compare this snapshot against a previous one.
+   */
+  public ApiDiff diff(final ApiSnapshot previous) {
+    final List<String> added = new ArrayList<>();
+    final List<String> removed = new ArrayList<>();
+    final Map<String, ApiDiff.TypeChange> changed = new TreeMap<>();
+
+    for (final Map.Entry<String, Type> e : types.entrySet()) {
+      final Type before = previous.types.get(e.getKey());
+
+      if (before == null) {
+        added.add(e.getKey());
+        continue;
+      }
+
+      final ApiDiff.TypeChange change =
+          ApiDiff.TypeChange.of(before.getFields(), e.getValue().getFields());
+
+      if (!change.isEmpty()) {
+        changed.put(e.getKey(), change);
+      }
+    }
+
+    for (final String name : previous.types.keySet()) {
+      if (!types.containsKey(name)) {
+        removed.add(name);
+      }
+    }
+
+    return new ApiDiff(added, removed, changed);
+  }
+
+  /**
+   * Read a snapshot written by {@link #write(Path)}, if present.
+   */
+  public static Optional<ApiSnapshot> read(final Path path) throws IOException {
+    if (!Files.isRegularFile(path)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(mapper.readValue(path.toFile(), ApiSnapshot.class));
+  }
+
+  /**
+   * Write the snapshot so that the next generation can be compared against it.
+   */
+  public void write(final Path path) throws IOException {
+    Files.createDirectories(path.toAbsolutePath().getParent());
+
+    AtomicFiles.write(path, out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, this));
+  }
+
+  private static void update(final MessageDigest digest, final String name, final Type type) {
+    update(digest, name);
+
+    type.getFields().forEach((field, fieldType) -> {
+      update(digest, field);
+      update(digest, fieldType);
+    });
+
+    // terminate the type so that fields can't move between types without changing the hash
+    digest.update((byte) 1);
+  }
+
+  private static void update(final MessageDigest digest, final String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  @Data
+  public static class Type {
+    private final String packageName;
+    /**
+     * Field types by field name. Enum constants have the type {@code enum constant}.
+     */
+    private final Map<String, String> fields;
+  }
+}
@@ -0,0 +1,148 @@
+package se.tedro.maven.plugin.reproto.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import se.tedro.maven.plugin.reproto.AtomicFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Size of the generated output by java package.
+ */
+@Data
+public class OutputStats {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final Map<String, PackageStats> packages;
+
+  /**
+   * Collect statistics for all java files in the given directory.
+   */
+  public static OutputStats collect(final Path directory) throws IOException {
+    final Map<String, PackageStats> packages = new TreeMap<>();
+
+    if (!Files.isDirectory(directory)) {
+      return new OutputStats(packages);
+    }
+
+    final List<Path> files;
+
+    try (final Stream<Path> stream = Files.walk(directory)) {
+      files = stream
+          .filter(Files::isRegularFile)
+          .filter(p -> p.getFileName().toString().endsWith(".java"))
+          .collect(Collectors.toList());
+    }
+
+    for (final Path file : files) {
+      final byte[] bytes = Files.readAllBytes(file);
+      final Map<String, ApiSnapshot.Type> types =
+          ApiScanner.scan(new String(bytes, StandardCharsets.UTF_8));
+
+      final String packageName = types.values().stream()
+          .map(ApiSnapshot.Type::getPackageName)
+          .findFirst()
+          .orElseGet(() -> packageOf(directory.relativize(file)));
+
+      final long fields = types.values().stream().mapToLong(t -> t.getFields().size()).sum();
+      final PackageStats stats = new PackageStats(1L, bytes.length, types.size(), fields);
+
+      packages.merge(packageName, stats, PackageStats::plus);
+    }
+
+    return new OutputStats(packages);
+  }
+
+  /**
+   * Statistics for all packages combined.
+   */
+  @JsonIgnore
+  public PackageStats getTotal() {
+    return packages.values().stream().reduce(PackageStats.EMPTY, PackageStats::plus);
+  }
+
+  /**
+   * Check every package against the given budget.
+   *
+   * @return a description of every exceeded budget
+   */
+  public List<String> exceeded(final Budget budget) {
+    final List<String> exceeded = new ArrayList<>();
+
+    packages.forEach((packageName, stats) -> {
+      check(exceeded, packageName, "file(s)", stats.getFiles(), budget.getMaxFiles());
+      check(exceeded, packageName, "byte(s)", stats.getBytes(), budget.getMaxBytes());
+      check(exceeded, packageName, "type(s)", stats.getTypes(), budget.getMaxTypes());
+      check(exceeded, packageName, "field(s)", stats.getFields(), budget.getMaxFields());
+    });
+
+    return exceeded;
+  }
+
+  public void write(final Path path) throws IOException {
+    Files.createDirectories(path.toAbsolutePath().getParent());
+
+    AtomicFiles.write(path, out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, this));
+  }
+
+  private static void check(
+      final List<String> exceeded, final String packageName, final String what, final long value,
+      final long max
+  ) {
+    if (max > 0 && value > max) {
+      exceeded.add(packageName + ": " + value + " " + what + ", budget is " + max);
+    }
+  }
+
+  private static String packageOf(final Path relative) {
+    final Path parent = relative.getParent();
+    return parent == null ? "" : parent.toString().replace(File.separatorChar, '.');
+  }
+
+  @Data
+  public static class PackageStats {
+    public static final PackageStats EMPTY = new PackageStats(0L, 0L, 0L, 0L);
+
+    private final long files;
+    private final long bytes;
+    private final long types;
+    private final long fields;
+
+    public PackageStats plus(final PackageStats other) {
+      return new PackageStats(files + other.files, bytes + other.bytes, types + other.types,
+          fields + other.fields);
+    }
+
+    @Override
+    public String toString() {
+      return files + " file(s), " + bytes + " byte(s), " + types + " type(s), " + fields
+          + " field(s)";
+    }
+  }
+
+  /**
+   * Limits for every generated package, {@code 0} means no limit.
+   */
+  @Data
+  public static class Budget {
+    private final long maxFiles;
+    private final long maxBytes;
+    private final long maxTypes;
+    private final long maxFields;
+
+    public boolean isEnabled() {
+      return maxFiles > 0 || maxBytes > 0 || maxTypes > 0 || maxFields > 0;
+    }
+  }
+}
@@ -1,29 +1,40 @@
 package se.tedro.maven.plugin.reproto.gcs;
 
 import lombok.Data;
+import lombok.RequiredArgsConstructor;
 import se.tedro.maven.plugin.reproto.Range;
 import se.tedro.maven.plugin.reproto.Version;
 
-import javax.net.ssl.HttpsURLConnection;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+@RequiredArgsConstructor
 public class GcsClient {
   public static final String API_BASE = "https://storage.googleapis.com/reproto-releases";
+  public static final int TIMEOUT_MS = 30000;
+
+  private final String apiBase;
+
+  public GcsClient() {
+    this(API_BASE);
+  }
 
   public Release getLatestRelease(final Release known, final Range req) throws IOException {
-    final String url = API_BASE + "/releases";
+    final String url = apiBase + "/releases";
 
     final URL opened = new URL(url);
 
-    final HttpsURLConnection connection = (HttpsURLConnection) opened.openConnection();
+    final HttpURLConnection connection = (HttpURLConnection) opened.openConnection();
+    connection.setConnectTimeout(TIMEOUT_MS);
+    connection.setReadTimeout(TIMEOUT_MS);
 
     if (known != null && known.getEtag() != null) {
       connection.setRequestProperty("If-None-Match", known.getEtag());
@@ -75,7 +86,7 @@ public class GcsClient {
   }
 
   public String downloadUrl(final String file) {
-    return API_BASE + "/" + file;
+    return apiBase + "/" + file;
   }
 
   @Data
@@ -0,0 +1,37 @@
+package se.tedro.maven.plugin.reproto.transform;
+
+import se.tedro.maven.plugin.reproto.Fingerprint;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Adds a license header as a block comment to the top of every file.
+ */
+public class LicenseHeader implements Transform {
+  private final String comment;
+
+  public LicenseHeader(final String header) {
+    final StringBuilder builder = new StringBuilder("/*\n");
+
+    for (final String line : header.trim().split("\\r?\\n")) {
+      builder.append(line.isEmpty() ? " *" : " * " + line).append('\n');
+    }
+
+    this.comment = builder.append(" */\n").toString();
+  }
+
+  @Override
+  public String id() {
+    return "license-header:" + Fingerprint.hash(comment.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public String apply(final Path path, final String content) {
+    if (content.startsWith(comment)) {
+      return content;
+    }
+
+    return comment + content;
+  }
+}
@@ -0,0 +1,150 @@
+package se.tedro.maven.plugin.reproto.transform;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import se.tedro.maven.plugin.reproto.AtomicFiles;
+import se.tedro.maven.plugin.reproto.Fingerprint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Passes every generated file through a chain of transforms in a single parallel pass.
+ *
+ * <p>Transformed content is kept in a store keyed by the fingerprint of the generated content and
+ * the chain, so files which reproto generated identically to the last build are restored from the
+ * store instead of being transformed again. Entries which were not used are removed from the store,
+ * so every store must only be used by a single execution.
+ */
+@RequiredArgsConstructor
+public class PostProcessor {
+  public static final String JAVA_EXTENSION = ".java";
+
+  private final List<Transform> transforms;
+  private final Path store;
+
+  /**
+   * Identifies the chain of transforms.
+   */
+  public List<String> ids() {
+    return transforms.stream().map(Transform::id).collect(Collectors.toList());
+  }
+
+  public boolean isEmpty() {
+    return transforms.isEmpty();
+  }
+
+  /**
+   * Transform all java files in the given directory.
+   */
+  public Result process(final Path directory) throws IOException {
+    final List<Path> files;
+
+    try (final Stream<Path> stream = Files.walk(directory)) {
+      files = stream
+          .filter(Files::isRegularFile)
+          .filter(p -> p.getFileName().toString().endsWith(JAVA_EXTENSION))
+          .collect(Collectors.toList());
+    }
+
+    Files.createDirectories(store);
+
+    final String chain = String.join("\n", ids());
+    final Set<String> used = ConcurrentHashMap.newKeySet();
+    final AtomicInteger transformed = new AtomicInteger();
+    final AtomicInteger restored = new AtomicInteger();
+
+    try {
+      ForkJoinPool.commonPool().submit(() -> files.parallelStream().forEach(file -> {
+        try {
+          final boolean hit = processFile(directory, file, chain, used);
+          (hit ? restored : transformed).incrementAndGet();
+        } catch (final IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      })).get();
+    } catch (final InterruptedException e) {
+      throw new IOException("interrupted while post-processing", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+
+      throw new IOException("failed to post-process: " + directory, e.getCause());
+    }
+
+    pruneStore(used);
+    return new Result(transformed.get(), restored.get());
+  }
+
+  /**
+   * @return {@code true} if the transformed content was restored from the store
+   */
+  private boolean processFile(
+      final Path directory, final Path file, final String chain, final Set<String> used
+  ) throws IOException {
+    final byte[] raw = Files.readAllBytes(file);
+    final String key = Fingerprint.hash(chain.getBytes(StandardCharsets.UTF_8), raw);
+    final Path stored = store.resolve(key);
+    used.add(key);
+
+    final byte[] result;
+    final boolean hit = Files.isRegularFile(stored);
+
+    if (hit) {
+      result = Files.readAllBytes(stored);
+    } else {
+      final Path relative = directory.relativize(file);
+      String content = new String(raw, StandardCharsets.UTF_8);
+
+      for (final Transform transform : transforms) {
+        content = transform.apply(relative, content);
+      }
+
+      result = content.getBytes(StandardCharsets.UTF_8);
+      replace(stored, result);
+    }
+
+    // replaced rather than written in place, since the file might be hard linked elsewhere
+    if (!Arrays.equals(raw, result)) {
+      replace(file, result);
+    }
+
+    return hit;
+  }
+
+  private void pruneStore(final Set<String> used) throws IOException {
+    final List<Path> unused = new ArrayList<>();
+
+    try (final Stream<Path> stream = Files.list(store)) {
+      stream.filter(p -> !used.contains(p.getFileName().toString())).forEach(unused::add);
+    }
+
+    for (final Path path : unused) {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  private static void replace(final Path path, final byte[] content) throws IOException {
+    AtomicFiles.write(path, out -> out.write(content));
+  }
+
+  @Data
+  public static class Result {
+    private final int transformed;
+    private final int restored;
+  }
+}
@@ -0,0 +1,36 @@
+package se.tedro.maven.plugin.reproto.transform;
+
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Removes single-type and static imports whose name is not referenced in the file.
+ */
+public class RemoveUnusedImports implements Transform {
+  public static final String ID = "remove-unused-imports";
+
+  private static final Pattern IMPORT = Pattern.compile(
+      "^import\\s+(static\\s+)?[\\w.]*?(\\w+)\\s*;[ \\t]*\\r?\\n", Pattern.MULTILINE);
+
+  @Override
+  public String id() {
+    return ID;
+  }
+
+  @Override
+  public String apply(final Path path, final String content) {
+    final String body = IMPORT.matcher(content).replaceAll("");
+
+    final StringBuffer result = new StringBuffer();
+    final Matcher m = IMPORT.matcher(content);
+
+    while (m.find()) {
+      final Pattern usage = Pattern.compile("\\b" + Pattern.quote(m.group(2)) + "\\b");
+      m.appendReplacement(result, usage.matcher(body).find() ? "$0" : "");
+    }
+
+    m.appendTail(result);
+    return result.toString();
+  }
+}
@@ -0,0 +1,23 @@
+package se.tedro.maven.plugin.reproto.transform;
+
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Strips trailing whitespace from every line.
+ */
+public class StripTrailingWhitespace implements Transform {
+  public static final String ID = "strip-trailing-whitespace";
+
+  private static final Pattern TRAILING = Pattern.compile("[ \\t]+$", Pattern.MULTILINE);
+
+  @Override
+  public String id() {
+    return ID;
+  }
+
+  @Override
+  public String apply(final Path path, final String content) {
+    return TRAILING.matcher(content).replaceAll("");
+  }
+}
@@ -0,0 +1,22 @@
+package se.tedro.maven.plugin.reproto.transform;
+
+import java.nio.file.Path;
+
+/**
+ * A transformation applied to the content of every generated file.
+ *
+ * <p>Implementations must be thread-safe, since files are transformed in parallel, and should be
+ * idempotent. Custom implementations need a public no-argument constructor.
+ */
+public interface Transform {
+  /**
+   * Identifies the transform and its configuration. Files are only transformed again when the
+   * identity of a transform changes.
+   */
+  String id();
+
+  /**
+   * Transform the content of the file at the given path, relative to the output directory.
+   */
+  String apply(Path path, String content);
+}
@@ -0,0 +1,42 @@
+package se.tedro.maven.plugin.reproto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BuildEventsTest {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testFlushWritesAllEventsInOrder() throws Exception {
+    final Path path = folder.getRoot().toPath().resolve("events.jsonl");
+    final BuildEvents events = BuildEvents.open(path, "group:artifact");
+
+    for (int i = 0; i < 1000; i++) {
+      events.cacheHit("entry-" + i);
+    }
+
+    events.flush();
+
+    final List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+    assertEquals(1000, lines.size());
+
+    for (int i = 0; i < lines.size(); i++) {
+      final Map<?, ?> event = mapper.readValue(lines.get(i), Map.class);
+      assertEquals("cache-hit", event.get("type"));
+      assertEquals("entry-" + i, event.get("entry"));
+    }
+  }
+}
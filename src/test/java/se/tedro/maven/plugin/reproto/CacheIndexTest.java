@@ -0,0 +1,102 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class CacheIndexTest {
+  private static final long NOW = TimeUnit.DAYS.toMillis(100L);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+  private CacheIndex index;
+
+  @Before
+  public void setup() throws Exception {
+    directory = folder.getRoot().toPath();
+    index = new CacheIndex(directory);
+  }
+
+  @Test
+  public void testList() throws Exception {
+    archive("reproto-0.3.1-linux-x86_64.tar.gz", 10);
+    archive("reproto-0.3.2-linux-x86_64.tar.gz", 20);
+    Files.write(directory.resolve("version"), new byte[5]);
+
+    index.touch("reproto-0.3.2-linux-x86_64.tar.gz", NOW - 2000L);
+    index.touch("reproto-0.3.1-linux-x86_64.tar.gz", NOW - 1000L);
+
+    final List<CacheIndex.Entry> entries = index.list();
+    assertEquals(2, entries.size());
+    assertEquals("reproto-0.3.2-linux-x86_64.tar.gz", entries.get(0).getName());
+    assertEquals(20L, entries.get(0).getSize());
+  }
+
+  @Test
+  public void testPruneLeastRecentlyUsed() throws Exception {
+    archive("reproto-0.3.1-linux-x86_64.tar.gz", 100);
+    archive("reproto-0.3.2-linux-x86_64.tar.gz", 100);
+    archive("reproto-0.3.3-linux-x86_64.tar.gz", 100);
+
+    index.touch("reproto-0.3.1-linux-x86_64.tar.gz", NOW - TimeUnit.DAYS.toMillis(3L));
+    index.touch("reproto-0.3.2-linux-x86_64.tar.gz", NOW - TimeUnit.DAYS.toMillis(2L));
+    // in use, never evicted
+    index.touch("reproto-0.3.3-linux-x86_64.tar.gz", NOW);
+
+    final List<String> evicted = index.prune(150L, 0L, NOW).stream()
+        .map(CacheIndex.Entry::getName).collect(Collectors.toList());
+
+    assertEquals(2, evicted.size());
+    assertFalse(Files.exists(directory.resolve("reproto-0.3.1-linux-x86_64.tar.gz")));
+    assertTrue(Files.exists(directory.resolve("reproto-0.3.3-linux-x86_64.tar.gz")));
+  }
+
+  @Test
+  public void testPruneAge() throws Exception {
+    archive("reproto-0.3.1-linux-x86_64.tar.gz", 100);
+    archive("reproto-0.3.2-linux-x86_64.tar.gz", 100);
+
+    index.touch("reproto-0.3.1-linux-x86_64.tar.gz", NOW - TimeUnit.DAYS.toMillis(30L));
+    index.touch("reproto-0.3.2-linux-x86_64.tar.gz", NOW - TimeUnit.DAYS.toMillis(1L));
+
+    assertEquals(1, index.prune(0L, TimeUnit.DAYS.toMillis(7L), NOW).size());
+    assertEquals(1, index.list().size());
+  }
+
+  @Test
+  public void testTouchProtectsFromPrune() throws Exception {
+    assertFalse(index.touch("reproto-0.3.1-linux-x86_64.tar.gz", NOW));
+
+    archive("reproto-0.3.1-linux-x86_64.tar.gz", 100);
+    index.touch("reproto-0.3.1-linux-x86_64.tar.gz", NOW - TimeUnit.DAYS.toMillis(30L));
+
+    // a build about to extract the archive marks it first
+    assertTrue(index.touch("reproto-0.3.1-linux-x86_64.tar.gz", NOW));
+    assertTrue(index.prune(1L, TimeUnit.DAYS.toMillis(1L), NOW).isEmpty());
+    assertTrue(Files.exists(directory.resolve("reproto-0.3.1-linux-x86_64.tar.gz")));
+  }
+
+  @Test
+  public void testVerify() throws Exception {
+    archive("reproto-0.3.1-linux-x86_64.tar.gz", 100);
+
+    final List<CacheIndex.Entry> removed = index.verify();
+    assertEquals(1, removed.size());
+    assertTrue(index.list().isEmpty());
+  }
+
+  private void archive(final String name, final int size) throws Exception {
+    Files.write(directory.resolve(name), new byte[size]);
+  }
+}
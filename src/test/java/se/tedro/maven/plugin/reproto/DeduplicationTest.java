@@ -0,0 +1,160 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DeduplicationTest {
+  private static final Fingerprint FINGERPRINT = new Fingerprint("abc");
+  private static final Runnable NO_CHECK = () -> {
+  };
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testLinkGivesEveryGenerationItsOwnFiles() throws Exception {
+    final Path a = folder.newFolder("a").toPath();
+    final Path b = folder.newFolder("b").toPath();
+
+    final Deduplication first = deduplication(Deduplication.Mode.LINK);
+    first.generate(FINGERPRINT, a, staging("a"), NO_CHECK,
+        directory -> write(directory.resolve("Foo.java"), "first"));
+    first.generate(FINGERPRINT, b, staging("b"), NO_CHECK,
+        directory -> fail("expected output to be reused"));
+
+    assertEquals("first", read(a.resolve("Foo.java")));
+    assertEquals("first", read(b.resolve("Foo.java")));
+
+    // a later build where the inputs differ
+    deduplication(Deduplication.Mode.LINK).generate(FINGERPRINT, b, staging("b"), NO_CHECK,
+        directory -> write(directory.resolve("Foo.java"), "second"));
+
+    assertEquals("first", read(a.resolve("Foo.java")));
+    assertEquals("second", read(b.resolve("Foo.java")));
+
+    // a later build without deduplication, reproto rewrites files in place
+    Deduplication.unlink(a);
+    write(a.resolve("Foo.java"), "third");
+    assertEquals("first", read(staging("a").resolve("Foo.java")));
+  }
+
+  @Test
+  public void testOnlyGeneratedFilesAreMaterialized() throws Exception {
+    final Path a = folder.newFolder("a").toPath();
+    final Path b = folder.newFolder("b").toPath();
+
+    // output of another execution into the same directory, or of an earlier build
+    write(a.resolve("Stale.java"), "stale");
+
+    final Deduplication deduplication = deduplication(Deduplication.Mode.COPY);
+    deduplication.generate(FINGERPRINT, a, staging("a"), NO_CHECK,
+        directory -> write(directory.resolve("Foo.java"), "foo"));
+    deduplication.generate(FINGERPRINT, b, staging("b"), NO_CHECK,
+        directory -> fail("expected output to be reused"));
+
+    assertEquals("foo", read(b.resolve("Foo.java")));
+    assertFalse(Files.exists(b.resolve("Stale.java")));
+  }
+
+  @Test
+  public void testErrorIsPropagatedToWaiters() throws Exception {
+    final Deduplication deduplication = deduplication(Deduplication.Mode.COPY);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final CompletableFuture<Void> owner = CompletableFuture.runAsync(() -> {
+      try {
+        deduplication.generate(FINGERPRINT, folder.getRoot().toPath().resolve("a"), staging("a"),
+            NO_CHECK, directory -> {
+              started.countDown();
+              release.await();
+              throw new StackOverflowError();
+            });
+      } catch (final Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    release.countDown();
+
+    try {
+      deduplication.generate(FINGERPRINT, folder.getRoot().toPath().resolve("b"), staging("b"),
+          NO_CHECK, directory -> fail("expected to wait for the first generation"));
+      fail("expected failure");
+    } catch (final RuntimeException e) {
+      assertTrue(e.getCause() instanceof StackOverflowError);
+    }
+
+    try {
+      owner.join();
+      fail("expected owner to fail");
+    } catch (final CompletionException e) {
+      assertTrue(e.getCause() instanceof StackOverflowError);
+    }
+  }
+
+  @Test
+  public void testWaitersAreInterrupted() throws Exception {
+    final Deduplication deduplication = deduplication(Deduplication.Mode.COPY);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final Thread owner = new Thread(() -> {
+      try {
+        deduplication.generate(FINGERPRINT, folder.getRoot().toPath().resolve("a"), staging("a"),
+            NO_CHECK, directory -> {
+              started.countDown();
+              release.await();
+            });
+      } catch (final Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    owner.start();
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+
+    try {
+      deduplication.generate(FINGERPRINT, folder.getRoot().toPath().resolve("b"), staging("b"),
+          () -> {
+            throw new RuntimeException("cancelled");
+          }, directory -> fail("expected to wait for the first generation"));
+      fail("expected cancellation");
+    } catch (final RuntimeException e) {
+      assertEquals("cancelled", e.getMessage());
+    } finally {
+      release.countDown();
+      owner.join();
+    }
+  }
+
+  private static Deduplication deduplication(final Deduplication.Mode mode) {
+    return new Deduplication(new SessionScope(), mode, new SystemStreamLog());
+  }
+
+  private Path staging(final String name) {
+    return folder.getRoot().toPath().resolve("staging-" + name);
+  }
+
+  private static void write(final Path path, final String content) throws Exception {
+    Files.createDirectories(path.getParent());
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(final Path path) throws Exception {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+}
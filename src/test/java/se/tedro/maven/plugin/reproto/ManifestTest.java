@@ -0,0 +1,116 @@
+package se.tedro.maven.plugin.reproto;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ManifestTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testParse() throws Exception {
+    final Path root = folder.getRoot().toPath();
+
+    final Manifest manifest = manifest(
+        "# comment",
+        "language = \"java\"",
+        "paths = [",
+        "  \"schemas\", # trailing",
+        "]",
+        "",
+        "[modules.jackson]",
+        "[modules.builder]",
+        "ignored = true",
+        "[presets.maven]",
+        "",
+        "[packages]",
+        "\"api.v1\" = \"*\"",
+        "other = { version = \"1\" }"
+    );
+
+    assertEquals(ImmutableSet.of("jackson", "builder"), manifest.getModules());
+    assertEquals(ImmutableSet.of("maven"), manifest.getPresets());
+    assertEquals(ImmutableSet.of("api.v1", "other"), manifest.getPackages());
+    assertEquals(ImmutableList.of(root.resolve("schemas"), root.resolve("src/main/reproto")),
+        manifest.getPaths());
+    assertFalse(manifest.isRepository());
+  }
+
+  @Test
+  public void testParseInlineTables() throws Exception {
+    final Manifest manifest = manifest(
+        "packages = { \"api.v1\" = \"*\", other = { version = \"1\" } }",
+        "modules = {",
+        "  jackson = {},",
+        "  builder = { ignored = [1, 2] },",
+        "}",
+        "presets.maven = {}"
+    );
+
+    assertEquals(ImmutableSet.of("api.v1", "other"), manifest.getPackages());
+    assertEquals(ImmutableSet.of("jackson", "builder"), manifest.getModules());
+    assertEquals(ImmutableSet.of("maven"), manifest.getPresets());
+  }
+
+  @Test
+  public void testParseSkipsUnknownSyntax() throws Exception {
+    final Manifest manifest = manifest(
+        "description = \"\"\"",
+        "A description without key = value pairs,",
+        "[packages]",
+        "\"\"\"",
+        "license = '''",
+        "no assignment here",
+        "'''",
+        "[packages]",
+        "\"api.v1\" = \"*\""
+    );
+
+    assertEquals(ImmutableSet.of("api.v1"), manifest.getPackages());
+  }
+
+  @Test
+  public void testValidate() throws Exception {
+    final Path root = folder.getRoot().toPath();
+    Files.createDirectories(root.resolve("src/main/reproto/api"));
+    Files.createFile(root.resolve("src/main/reproto/api/v1.reproto"));
+    Files.createFile(root.resolve("src/main/reproto/api/v2-1.0.0.reproto"));
+
+    final Manifest manifest = manifest(
+        "presets = [\"maven\"]",
+        "[modules.jackson]",
+        "[packages]",
+        "\"api.v1\" = \"*\""
+    );
+
+    assertEquals(Collections.emptyList(),
+        manifest.validate(ImmutableSet.of("api", "api.v2"), ImmutableList.of("builder"), true));
+
+    final List<String> errors =
+        manifest.validate(ImmutableSet.of("api.v3"), ImmutableList.of("unknown"), true);
+
+    assertEquals(2, errors.size());
+    assertTrue(errors.get(0).startsWith("unknown module `unknown`"));
+    assertTrue(errors.get(1).startsWith("package `api.v3` not found"));
+
+    assertEquals(Collections.emptyList(),
+        manifest.validate(ImmutableSet.of(), ImmutableList.of("unknown"), false));
+  }
+
+  private Manifest manifest(final String... lines) throws Exception {
+    final Path path = folder.getRoot().toPath().resolve("reproto.toml");
+    Files.write(path, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    return Manifest.parse(path);
+  }
+}
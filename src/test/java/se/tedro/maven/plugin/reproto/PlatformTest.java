@@ -0,0 +1,60 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class PlatformTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testArchiveSuffix() {
+    assertEquals(Optional.of("linux-x86_64"),
+        Platform.detect("Linux", "amd64", false).archiveSuffix());
+    assertEquals(Optional.of("linux-aarch64"),
+        Platform.detect("Linux", "aarch64", false).archiveSuffix());
+    assertEquals(Optional.of("linux-aarch64-musl"),
+        Platform.detect("Linux", "aarch64", true).archiveSuffix());
+    assertEquals(Optional.of("osx-aarch64"),
+        Platform.detect("Mac OS X", "arm64", true).archiveSuffix());
+    assertEquals(Optional.of("win-x86_32"),
+        Platform.detect("Windows 10", "x86", false).archiveSuffix());
+    assertEquals(Optional.empty(), Platform.detect("Linux", "ppc64le", false).archiveSuffix());
+    assertEquals(Optional.empty(), Platform.detect("SunOS", "amd64", false).archiveSuffix());
+  }
+
+  @Test
+  public void testArchiveSuffixes() {
+    assertEquals(Arrays.asList("linux-x86_64-musl", "linux-x86_64"),
+        Platform.detect("Linux", "amd64", true).archiveSuffixes());
+    assertEquals(Collections.singletonList("linux-x86_64"),
+        Platform.detect("Linux", "amd64", false).archiveSuffixes());
+    assertEquals(Collections.emptyList(),
+        Platform.detect("SunOS", "amd64", true).archiveSuffixes());
+  }
+
+  @Test
+  public void testProbeMusl() throws Exception {
+    final Path maps = folder.getRoot().toPath().resolve("maps");
+    assertFalse(Platform.probeMusl(maps));
+
+    // glibc process on a host which has musl installed
+    Files.write(maps, Arrays.asList(
+        "7f0000000000-7f0000001000 r--p 00000000 08:01 1 /usr/lib/x86_64-linux-gnu/libc.so.6",
+        "7f0000002000-7f0000003000 r--p 00000000 08:01 2 /lib64/ld-linux-x86-64.so.2"));
+    assertFalse(Platform.probeMusl(maps));
+
+    Files.write(maps, Collections.singletonList(
+        "7f0000000000-7f0000001000 r--p 00000000 08:01 1 /lib/ld-musl-x86_64.so.1"));
+    assertTrue(Platform.probeMusl(maps));
+  }
+}
@@ -0,0 +1,127 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ReprotoTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path root;
+
+  @Before
+  public void setup() {
+    assumeTrue(Files.isExecutable(Paths.get("/bin/sh")));
+    root = folder.getRoot().toPath();
+  }
+
+  @Test
+  public void testNormalizedArguments() {
+    final Reproto reproto = new Reproto.Builder(root.resolve("reproto"), root.resolve("out"),
+        root.resolve("reproto.toml")).path(root.resolve("schemas")).target("api").build();
+
+    final List<String> expected = Arrays.asList("build", "--lang", "java", "--package", "api");
+
+    assertEquals(expected, reproto.normalizedArguments());
+  }
+
+  @Test
+  public void testExecute() throws Exception {
+    final Reproto reproto = builder("echo \"$@\"").build();
+    final Reproto.Result result = reproto.execute(new SystemStreamLog());
+    assertTrue(result.getDurationMs() >= 0);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testNonZeroStatus() throws Exception {
+    builder("exit 1").build().execute(new SystemStreamLog());
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    final Reproto reproto =
+        builder("echo starting\nsleep 10").timeout(Duration.ofMillis(500)).build();
+    final List<String> logged = new ArrayList<>();
+
+    try {
+      reproto.execute(new SystemStreamLog() {
+        @Override
+        public void info(final CharSequence content) {
+          logged.add(content.toString());
+        }
+      });
+      fail("expected timeout");
+    } catch (final RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("timed out"));
+    }
+
+    assertTrue(logged.toString(), logged.contains("reproto: starting"));
+  }
+
+  @Test
+  public void testCancelled() throws Exception {
+    final Reproto reproto = builder("sleep 10").cancelled(() -> true).build();
+
+    try {
+      reproto.execute(new SystemStreamLog());
+      fail("expected cancellation");
+    } catch (final RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("cancelled"));
+    }
+  }
+
+  @Test
+  public void testBackend() throws Exception {
+    final Reproto.Result expected =
+        new Reproto.Result(42L, new ProcessStats.Usage(Optional.empty(), Optional.empty()));
+
+    final Reproto reproto = builder("exit 1").backend((r, log) -> expected).build();
+
+    assertSame(expected, reproto.execute(new SystemStreamLog()));
+  }
+
+  @Test
+  public void testExecutableVersion() throws Exception {
+    final Path executable = builder("echo \"reproto 0.3.36\"").build().getExecutable();
+    assertEquals(Version.parse("0.3.36"), ExecutableVersion.probe(executable));
+
+    assertEquals(Optional.of(Version.parse("0.4.0")), ExecutableVersion.parse("reproto 0.4.0\n"));
+    assertEquals(Optional.empty(), ExecutableVersion.parse("reproto"));
+  }
+
+  @Test
+  public void testExecutableVersionTimeout() throws Exception {
+    final Path executable = builder("sleep 10").build().getExecutable();
+
+    try {
+      ExecutableVersion.probe(executable, 200L);
+      fail("expected timeout");
+    } catch (final IllegalStateException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("timed out"));
+    }
+  }
+
+  private Reproto.Builder builder(final String script) throws Exception {
+    final Path executable = root.resolve("reproto");
+    Files.write(executable, ("#!/bin/sh\n" + script + "\n").getBytes(StandardCharsets.UTF_8));
+    Files.setPosixFilePermissions(executable, PosixFilePermissions.fromString("rwxr-xr-x"));
+    return new Reproto.Builder(executable, root.resolve("out"), root.resolve("reproto.toml"));
+  }
+}
@@ -0,0 +1,61 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SessionScopeTest {
+  @Test
+  public void testMemoizeDoesNotBlockOtherKeys() throws Exception {
+    final SessionScope scope = new SessionScope();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> {
+      try {
+        return scope.memoize("slow", () -> {
+          started.countDown();
+          release.await();
+          return "slow";
+        });
+      } catch (final InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+
+    try {
+      assertEquals("fast", scope.memoize("fast", () -> "fast"));
+      assertEquals("fast", scope.computeIfAbsent("other", k -> "fast"));
+    } finally {
+      release.countDown();
+    }
+
+    assertEquals("slow", slow.get(10, TimeUnit.SECONDS));
+    assertEquals("slow", scope.memoize("slow", () -> {
+      throw new AssertionError("expected a memoized value");
+    }));
+  }
+
+  @Test
+  public void testMemoizeRetriesFailures() throws Exception {
+    final SessionScope scope = new SessionScope();
+
+    try {
+      scope.memoize("key", () -> {
+        throw new IOException("failed");
+      });
+      fail("expected failure");
+    } catch (final IOException e) {
+      assertEquals("failed", e.getMessage());
+    }
+
+    assertEquals("value", scope.memoize("key", () -> "value"));
+  }
+}
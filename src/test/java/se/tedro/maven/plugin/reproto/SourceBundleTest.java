@@ -0,0 +1,107 @@
+package se.tedro.maven.plugin.reproto;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.*;
+
+public class SourceBundleTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testExtractOnlyChanged() throws Exception {
+    final Path staging = folder.newFolder("staging").toPath();
+    final Path output = folder.newFolder("output").toPath();
+    final SourceBundle bundle = new SourceBundle(folder.getRoot().toPath().resolve("bundle.jar"));
+
+    write(staging.resolve("a/A.java"), "class A {}");
+    write(staging.resolve("a/B.java"), "class B {}");
+
+    assertEquals(2, bundle.write(staging));
+    assertEquals(2, bundle.extract(output, bundle.entries()));
+
+    final FileTime modified = FileTime.fromMillis(0L);
+    Files.setLastModifiedTime(output.resolve("a/A.java"), modified);
+
+    write(staging.resolve("a/B.java"), "class B { int b; }");
+    write(staging.resolve("a/C.java"), "class C {}");
+
+    Map<String, SourceBundle.Checksum> previous = bundle.entries();
+    bundle.write(staging);
+    assertEquals(2, bundle.extract(output, previous));
+    assertEquals(modified, Files.getLastModifiedTime(output.resolve("a/A.java")));
+    assertEquals("class B { int b; }", read(output.resolve("a/B.java")));
+
+    Files.delete(staging.resolve("a/C.java"));
+
+    previous = bundle.entries();
+    bundle.write(staging);
+    assertEquals(1, bundle.extract(output, previous));
+    assertFalse(Files.exists(output.resolve("a/C.java")));
+
+    // files which were modified or removed since they were unpacked are restored
+    write(output.resolve("a/A.java"), "class A { modified }");
+    Files.delete(output.resolve("a/B.java"));
+
+    previous = bundle.entries();
+    bundle.write(staging);
+    assertEquals(2, bundle.extract(output, previous));
+    assertEquals("class A {}", read(output.resolve("a/A.java")));
+    assertEquals("class B { int b; }", read(output.resolve("a/B.java")));
+  }
+
+  @Test
+  public void testExtractKeepsOtherFiles() throws Exception {
+    final Path staging = folder.newFolder("staging").toPath();
+    final Path output = folder.newFolder("output").toPath();
+    final SourceBundle bundle = new SourceBundle(folder.getRoot().toPath().resolve("bundle.jar"));
+
+    write(staging.resolve("a/A.java"), "class A {}");
+    write(output.resolve("b/B.java"), "class B {}");
+
+    bundle.write(staging);
+    assertEquals(1, bundle.extract(output, bundle.entries()));
+    assertTrue(Files.exists(output.resolve("b/B.java")));
+  }
+
+  @Test
+  public void testExtractRejectsEntriesOutsideOfDirectory() throws Exception {
+    final Path output = folder.newFolder("output").toPath();
+    final Path path = folder.getRoot().toPath().resolve("bundle.jar");
+
+    try (final JarOutputStream jar = new JarOutputStream(Files.newOutputStream(path))) {
+      jar.putNextEntry(new JarEntry("../escaped.java"));
+      jar.closeEntry();
+    }
+
+    try {
+      new SourceBundle(path).extract(output, Collections.emptyMap());
+      fail("expected entry to be rejected");
+    } catch (final IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("outside of the target directory"));
+    }
+
+    assertFalse(Files.exists(folder.getRoot().toPath().resolve("escaped.java")));
+  }
+
+  private static void write(final Path path, final String content) throws Exception {
+    Files.createDirectories(path.getParent());
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(final Path path) throws Exception {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,70 @@
+package se.tedro.maven.plugin.reproto;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TargetFeatureTest {
+  @Test
+  public void testGroup() {
+    final Map<Set<String>, Set<String>> groups = TargetFeature.group(
+        ImmutableList.of("a", "b", "c"), ImmutableList.of("jackson", "builder"),
+        ImmutableList.of(feature("b", "lombok"), feature("c"), feature("d", "lombok")),
+        ImmutableList.of());
+
+    final Map<Set<String>, Set<String>> expected = ImmutableMap.of(
+        ImmutableSet.of("builder", "jackson"), ImmutableSet.of("a"),
+        ImmutableSet.of("lombok"), ImmutableSet.of("b", "d"),
+        ImmutableSet.of(), ImmutableSet.of("c"));
+
+    assertEquals(expected, groups);
+    assertEquals(ImmutableList.copyOf(expected.keySet()), ImmutableList.copyOf(groups.keySet()));
+  }
+
+  @Test
+  public void testGroupWithoutFeatures() {
+    assertEquals(ImmutableMap.of(ImmutableSet.of("jackson"), ImmutableSet.of()),
+        TargetFeature.group(ImmutableList.of(), ImmutableList.of("jackson"), ImmutableList.of(),
+            ImmutableList.of("a")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateTarget() {
+    TargetFeature.group(ImmutableList.of(), ImmutableList.of(),
+        ImmutableList.of(feature("a"), feature("a", "jackson")), ImmutableList.of());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFeaturedManifestPackage() {
+    TargetFeature.group(ImmutableList.of(), ImmutableList.of(),
+        ImmutableList.of(feature("a", "jackson")), ImmutableList.of("a"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFeaturesWithManifestPackages() {
+    TargetFeature.group(ImmutableList.of("a"), ImmutableList.of(),
+        ImmutableList.of(feature("b", "jackson")), ImmutableList.of("c"));
+  }
+
+  @Test
+  public void testGroupUnknownModules() {
+    assertEquals(ImmutableMap.of(ImmutableSet.of("jackson"), ImmutableSet.of("a"),
+        ImmutableSet.of("future", "jackson"), ImmutableSet.of("b")),
+        TargetFeature.group(ImmutableList.of("a"), ImmutableList.of("jackson"),
+            ImmutableList.of(feature("b", "jackson", "future")), ImmutableList.of()));
+  }
+
+  private static TargetFeature feature(final String target, final String... modules) {
+    final TargetFeature feature = new TargetFeature();
+    feature.setTarget(target);
+    feature.setModules(Arrays.asList(modules));
+    return feature;
+  }
+}
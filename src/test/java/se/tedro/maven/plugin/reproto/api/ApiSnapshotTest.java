@@ -0,0 +1,120 @@
+package se.tedro.maven.plugin.reproto.api;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class ApiSnapshotTest {
+  private static final String FOO = "package foo;\n\n"
+      + "import com.fasterxml.jackson.annotation.JsonProperty;\n"
+      + "import java.util.Map;\n\n"
+      + "/* class Commented {} */\n"
+      + "public class Foo {\n"
+      + "  public static final String NAME = \"Foo { ; }\";\n"
+      + "  @JsonProperty(\"field\")\n"
+      + "  private final Map<String, Integer> field;\n"
+      + "  private final String other = \"}\";\n\n"
+      + "  public Foo(final Map<String, Integer> field) {\n"
+      + "    this.field = field;\n"
+      + "  }\n\n"
+      + "  public static enum Kind {\n"
+      + "    ONE(\"one\"), TWO(\"two, three\");\n"
+      + "    private final String value;\n"
+      + "    Kind(final String value) { this.value = value; }\n"
+      + "  }\n\n"
+      + "  public interface Visitor {\n"
+      + "    void visit(Foo foo);\n"
+      + "  }\n"
+      + "}\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testScan() {
+    final Map<String, ApiSnapshot.Type> types = ApiScanner.scan(FOO);
+
+    assertEquals(ImmutableList.of("foo.Foo", "foo.Foo.Kind", "foo.Foo.Visitor"),
+        ImmutableList.copyOf(types.keySet()));
+
+    assertEquals(ImmutableMap.of("field", "Map<String, Integer>", "other", "String"),
+        types.get("foo.Foo").getFields());
+    assertEquals(ImmutableMap.of("ONE", "enum constant", "TWO", "enum constant", "value",
+        "String"), types.get("foo.Foo.Kind").getFields());
+    assertEquals(ImmutableMap.of(), types.get("foo.Foo.Visitor").getFields());
+    assertEquals("foo", types.get("foo.Foo.Kind").getPackageName());
+  }
+
+  @Test
+  public void testDiff() {
+    final ApiSnapshot before = snapshot(
+        type("a", "a.Foo", "x", "int", "y", "String"),
+        type("a", "a.Bar"));
+    final ApiSnapshot after = snapshot(
+        type("a", "a.Foo", "x", "long", "z", "String"),
+        type("b", "b.Baz"));
+
+    final ApiDiff diff = after.diff(before);
+
+    assertEquals(ImmutableList.of("b.Baz"), diff.getAdded());
+    assertEquals(ImmutableList.of("a.Bar"), diff.getRemoved());
+
+    final ApiDiff.TypeChange change = diff.getChanged().get("a.Foo");
+    assertEquals(ImmutableList.of("z"), change.getAdded());
+    assertEquals(ImmutableList.of("y"), change.getRemoved());
+    assertEquals(ImmutableMap.of("x", "int -> long"), change.getChanged());
+
+    assertTrue(after.diff(after).isEmpty());
+  }
+
+  @Test
+  public void testHashes() {
+    final ApiSnapshot snapshot = snapshot(type("a", "a.Foo", "x", "int"), type("b", "b.Bar"));
+    final ApiSnapshot changed = snapshot(type("a", "a.Foo", "x", "long"), type("b", "b.Bar"));
+
+    assertNotEquals(snapshot.abiHash(), changed.abiHash());
+    assertNotEquals(snapshot.packageHashes().get("a"), changed.packageHashes().get("a"));
+    assertEquals(snapshot.packageHashes().get("b"), changed.packageHashes().get("b"));
+  }
+
+  @Test
+  public void testReadWrite() throws Exception {
+    final Path path = folder.getRoot().toPath().resolve("api.json");
+    final ApiSnapshot snapshot = snapshot(type("a", "a.Foo", "x", "int"));
+
+    assertFalse(ApiSnapshot.read(path).isPresent());
+    snapshot.write(path);
+    assertEquals(snapshot, ApiSnapshot.read(path).get());
+  }
+
+  private static ApiSnapshot snapshot(final Map.Entry<String, ApiSnapshot.Type>... types) {
+    final Map<String, ApiSnapshot.Type> map = new TreeMap<>();
+
+    for (final Map.Entry<String, ApiSnapshot.Type> type : types) {
+      map.put(type.getKey(), type.getValue());
+    }
+
+    return new ApiSnapshot(map);
+  }
+
+  private static Map.Entry<String, ApiSnapshot.Type> type(
+      final String packageName, final String name, final String... fields
+  ) {
+    final Map<String, String> map = new TreeMap<>();
+
+    for (int i = 0; i < fields.length; i += 2) {
+      map.put(fields[i], fields[i + 1]);
+    }
+
+    return ImmutableMap.of(name, new ApiSnapshot.Type(packageName, map)).entrySet().iterator()
+        .next();
+  }
+}
@@ -0,0 +1,47 @@
+package se.tedro.maven.plugin.reproto.api;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class OutputStatsTest {
+  private static final String FOO = "package a;\n\nclass Foo {\n  int x;\n  String y;\n\n"
+      + "  static class Inner {\n    long z;\n  }\n}\n";
+  private static final String BAR = "package a;\n\nenum Bar {\n  ONE, TWO;\n}\n";
+  private static final String BAZ = "package b.c;\n\nclass Baz {\n}\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testCollect() throws Exception {
+    final Path root = folder.getRoot().toPath();
+    write(root.resolve("a/Foo.java"), FOO);
+    write(root.resolve("a/Bar.java"), BAR);
+    write(root.resolve("b/c/Baz.java"), BAZ);
+
+    final OutputStats stats = OutputStats.collect(root);
+
+    assertEquals(ImmutableList.of("a", "b.c"), ImmutableList.copyOf(stats.getPackages().keySet()));
+    assertEquals(new OutputStats.PackageStats(2L, FOO.length() + BAR.length(), 3L, 5L),
+        stats.getPackages().get("a"));
+    assertEquals(new OutputStats.PackageStats(3L, FOO.length() + BAR.length() + BAZ.length(), 4L,
+        5L), stats.getTotal());
+
+    assertEquals(ImmutableList.of(), stats.exceeded(new OutputStats.Budget(2L, 0L, 3L, 0L)));
+    assertEquals(ImmutableList.of("a: 3 type(s), budget is 2", "a: 5 field(s), budget is 4"),
+        stats.exceeded(new OutputStats.Budget(0L, 0L, 2L, 4L)));
+  }
+
+  private static void write(final Path path, final String content) throws Exception {
+    Files.createDirectories(path.getParent());
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,78 @@
+package se.tedro.maven.plugin.reproto.transform;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class PostProcessorTest {
+  private static final Path PATH = Paths.get("Foo.java");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testRemoveUnusedImports() {
+    final String input = "package foo;\n\nimport java.util.List;\nimport java.util.Map;\n"
+        + "import java.util.*;\nimport static java.util.Objects.requireNonNull;\n\n"
+        + "class Foo { List<String> a; }\n";
+
+    final String expected = "package foo;\n\nimport java.util.List;\n"
+        + "import java.util.*;\n\nclass Foo { List<String> a; }\n";
+
+    assertEquals(expected, new RemoveUnusedImports().apply(PATH, input));
+  }
+
+  @Test
+  public void testLicenseHeader() {
+    final LicenseHeader header = new LicenseHeader("Copyright\n\nLicensed\n");
+    final String once = header.apply(PATH, "class Foo {}\n");
+
+    assertEquals("/*\n * Copyright\n *\n * Licensed\n */\nclass Foo {}\n", once);
+    assertEquals(once, header.apply(PATH, once));
+  }
+
+  @Test
+  public void testStripTrailingWhitespace() {
+    assertEquals("a\nb\n", new StripTrailingWhitespace().apply(PATH, "a  \nb\t\n"));
+  }
+
+  @Test
+  public void testProcessRestoresUnchanged() throws Exception {
+    final Path out = folder.newFolder("out").toPath();
+    final PostProcessor processor = new PostProcessor(
+        ImmutableList.of(new StripTrailingWhitespace(), new LicenseHeader("License")),
+        folder.getRoot().toPath().resolve("store"));
+
+    write(out.resolve("a/A.java"), "class A {} \n");
+    write(out.resolve("a/B.java"), "class B {}\n");
+    write(out.resolve("a/notes.txt"), "left alone \n");
+
+    assertEquals(new PostProcessor.Result(2, 0), processor.process(out));
+    assertEquals("/*\n * License\n */\nclass A {}\n", read(out.resolve("a/A.java")));
+    assertEquals("left alone \n", read(out.resolve("a/notes.txt")));
+
+    // regenerated
+    write(out.resolve("a/A.java"), "class A {} \n");
+    write(out.resolve("a/B.java"), "class B { int b; }\n");
+
+    assertEquals(new PostProcessor.Result(1, 1), processor.process(out));
+    assertEquals("/*\n * License\n */\nclass A {}\n", read(out.resolve("a/A.java")));
+  }
+
+  private static void write(final Path path, final String content) throws Exception {
+    Files.createDirectories(path.getParent());
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(final Path path) throws Exception {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+}